@@ -1,22 +1,90 @@
 package k8s.mdd.simulation;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.AbstractQueue;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Random;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 
 public class Main {
 	
 	private static boolean debug = false;
 	
+	private static boolean impact = false;
+	
+	// read by the threads of parallel propagations
+	private static volatile EventStream events = new EventStream(new TextEventConsumer(System.out), 1 << 14);
+	
 	private static record Example(String description, Runnable runnable) {}
 	
+	private static record Benchmark(String description, Consumer<int[]> runnable) {}
+	
 	private static final Map<Integer, Example> examples = new HashMap<>();
 	
 	static {
@@ -26,20 +94,74 @@ public class Main {
 		examples.put(4, new Example("Ecosystem with support for semi-automatic model and transformation co-evolution where the java version is changed", Main::example4));
 	}
 	
+	private static final Map<Integer, Benchmark> benchmarks = new HashMap<>();
+	
+	static {
+		benchmarks.put(1, new Benchmark("Bootstrap time of a repository with and without indexes", Main::benchmarkInstanceIndex));
+		benchmarks.put(2, new Benchmark("Propagation through a long chain of generators for each propagation order", Main::benchmarkPropagationChain));
+		benchmarks.put(3, new Benchmark("Sequential and parallel application of expensive generators", Main::benchmarkParallelPropagation));
+		benchmarks.put(4, new Benchmark("Stress test of concurrent commits to the same artifacts", Main::benchmarkConcurrentCommits));
+		benchmarks.put(5, new Benchmark("Commits of many versions of the same artifact", Main::benchmarkVersionAllocation));
+		benchmarks.put(6, new Benchmark("Heap usage of a repository with and without interned versions", Main::benchmarkInternedVersions));
+		benchmarks.put(7, new Benchmark("Set operations on large sets of instances", Main::benchmarkInstanceSets));
+		benchmarks.put(8, new Benchmark("Commit throughput, propagation latency and allocations of a synthetic ecosystem (sizes: meta models, instances, generators, depth)", Main::benchmarkSyntheticEcosystem));
+		benchmarks.put(9, new Benchmark("Transformation applications of single and batch commits with updated generators", Main::benchmarkBatchCommit));
+		benchmarks.put(10, new Benchmark("Building and rebuilding a repository with a shared transformation cache", Main::benchmarkTransformationCache));
+		benchmarks.put(11, new Benchmark("Recovering a repository from a commit log", Main::benchmarkCommitLogRecovery));
+		benchmarks.put(12, new Benchmark("Opening, querying and restoring a memory mapped repository snapshot", Main::benchmarkSnapshot));
+		benchmarks.put(13, new Benchmark("Estimated impact and actual propagation of changed models of a synthetic ecosystem", Main::benchmarkImpact));
+		benchmarks.put(14, new Benchmark("Detection of a cyclic migration, an unbounded generator and a loop after a dead end for each depth budget", Main::benchmarkRunawayPropagation));
+		benchmarks.put(15, new Benchmark("Propagation through a synthetic ecosystem for each event consumer, discarding the output", Main::benchmarkEventConsumers));
+		benchmarks.put(16, new Benchmark("Heap usage of a long running repository with evolving models and generators for each retention policy", Main::benchmarkRetention));
+		benchmarks.put(17, new Benchmark("Transformation applications for new models after each example for each dispatch mode", Main::benchmarkDispatchModes));
+		benchmarks.put(18, new Benchmark("Heap usage and membership tests of the dependency sets of artifacts for hash sets and version sets", Main::benchmarkVersionSets));
+		benchmarks.put(19, new Benchmark("Allocated bytes per copy of a generator for the copy paths of commits and migrations", Main::benchmarkCopyAllocations));
+		benchmarks.put(20, new Benchmark("Builds and deployments blocking for a millisecond each, applied inline or on a blocking executor", Main::benchmarkBlockingTransformations));
+	}
+	
+	// the event isn't even created if the consumer ignores its type
+	private static void emit(EventType type, ArtifactVersion version, Object detail) {
+		EventStream stream = events;
+		if (stream.isEnabled(type)) {
+			stream.publish(new Event(type, System.nanoTime(), version, detail));
+		}
+	}
+	
 	private static final void log(String message) {
+		emit(EventType.MESSAGE, null, message);
+	}
+	
+	private static final void report(String message) {
+		// keep the order with the events published so far
+		events.flush();
 		System.out.println(message);
 	}
 	
-	private static final Repository repo = new RepositoryImpl();
+	private static void logImpact(ArtifactVersion version) {
+		if (impact) {
+			Impact estimate = repo.impact(version);
+			emit(EventType.IMPACT, version, String.format("%s artifacts with %s transformation applications: %s",
+				estimate.affected().size(), estimate.applications(), estimate.affected()));
+		}
+	}
+	
+	private static Repository repo = new RepositoryImpl();
+	
+	// functions of transformations by id, so that stored transformations can be rehydrated
+	private static final TransformationRegistry registry = new TransformationRegistry()
+		.registerFactory("model-migration", Main::modelMigration)
+		.registerFactory("transformation-migration", Main::transformationMigration)
+		.registerFactory("generator", Main::generation);
 	
 	// basic setup
 	private static final Artifact executable = buildArtifact("executable").build();
 	private static final Artifact deploymentPipeline = buildTransformation("deploymentPipeline")
 		.withInput(executable.version())
-		.withTransformation(m -> {
-			log("[DEPLOY] Integration testing and deploying " + m.version());
+		.withTransformation(registry.register("deploymentPipeline", m -> {
+			emit(EventType.DEPLOY, m.version(), null);
 			return Optional.empty();
-		})
+		}))
+		.withBlocking(true)
 		.build();
 	private static final Artifact sourceCode = buildArtifact("sourceCode").build();
 	private static final Artifact ecore = buildArtifact("ecore").build();
@@ -51,12 +173,13 @@ public class Main {
 	private static final Artifact javaBuildPipeline = buildTransformation("javaBuildPipeline")
 		.withInput(java.version())
 		.withOutput(executable.version())
-		.withTransformation(m -> {
-			log("[BUILD] Unit testing and building " + m.version());
+		.withTransformation(registry.register("javaBuildPipeline", m -> {
+			emit(EventType.BUILD, m.version(), null);
 			return Optional.of(buildArtifact(String.format("%sVer%s.jar", m.version().name(), m.version().version()))
 				.withMetamodel(executable.version())
 				.build());
-		})
+		}))
+		.withBlocking(true)
 		.build();
 	
 	// platforms
@@ -79,31 +202,31 @@ public class Main {
 		.withMetamodel(trafoMM.version())
 		.withInput(microservice.version())
 		.withOutput(springBootPlatform.version())
-		.withTransformation(m -> {
-			log("[M2T] Generating Spring Boot microservices for model " + m.version());
+		.withTransformation(registry.register("microserviceToSpringBoot", m -> {
+			emit(EventType.GENERATE, m.version(), "Spring Boot microservices");
 			return Optional.of(buildArtifact(m.version().name() + "SpringBootGen")
 				.withMetamodel(java.version()).build());
-		})
+		}))
 		.build();
 	private static final Artifact microserviceToDotNet = buildTransformation("microserviceToDotNet")
 		.withMetamodel(trafoMM.version())
 		.withInput(microservice.version())
 		.withOutput(dotNetPlatform.version())
-		.withTransformation(m -> {
-			log("[M2T] Generating Dot Net microservices for model " + m.version());
+		.withTransformation(registry.register("microserviceToDotNet", m -> {
+			emit(EventType.GENERATE, m.version(), "Dot Net microservices");
 			return Optional.of(buildArtifact(m.version().name() + "DotNetGen")
 				.withMetamodel(sourceCode.version()).build());
-		})
+		}))
 		.build();
 	private static final Artifact microserviceToPython = buildTransformation("microserviceToPython")
 		.withMetamodel(trafoMM.version())
 		.withInput(microservice.version())
 		.withOutput(pythonPlatform.version())
-		.withTransformation(m -> {
-			log("[M2T] Generating Python microservices for model " + m.version());
+		.withTransformation(registry.register("microserviceToPython", m -> {
+			emit(EventType.GENERATE, m.version(), "Python microservices");
 			return Optional.of(buildArtifact(m.version().name() + "PythonGen")
 				.withMetamodel(sourceCode.version()).build());
-		})
+		}))
 		.build();
 	
 	// co-evolution support
@@ -111,88 +234,151 @@ public class Main {
 	private static final Artifact coEvModelGen = buildTransformation("coEvModelGen")
 		.withInput(ecore.version())
 		.withOutput(coEvM.version())
-		.withTransformation(m -> {
+		.withTransformation(registry.register("coEvModelGen", m -> {
 			if (m.version().isInitialVersion()) {
-				log("[CoEv] Don't create migration model for initial version of " + m.version());
+				emit(EventType.CO_EVOLUTION, m.version(), "Don't create migration model for initial version of");
 				return Optional.empty();
 			}
-			log("[CoEv] Creating migration model for " + m.version());
+			emit(EventType.CO_EVOLUTION, m.version(), "Creating migration model for");
 			return Optional.of(buildCoEvolutionModel(m.version().name() + "-coEvM")
 				.withMetamodel(coEvM.version())
 				.withChangedArtifact(m.version()).build());
-		})
+		}))
 		.build();
 	private static final Artifact modelCoEvGen = buildTransformation("modelCoEvGen")
 		.withInput(coEvM.version())
 		.withOutput(trafoMM.version())
-		.withTransformation(m -> {
+		.withTransformation(registry.register("modelCoEvGen", m -> {
 			if (m instanceof CoEvolutionModel coev) {
 				ArtifactVersion changedArtifact = coev.getChangedArtifact();
-				log("[CoEv] Creating model migration for " + changedArtifact);
+				emit(EventType.CO_EVOLUTION, changedArtifact, "Creating model migration for");
 				return Optional.of(buildTransformation(changedArtifact.name() + "-model-migration")
 					// previous meta model version is the input
 					.withInput(changedArtifact.decrement())
 					// new meta model version is the output
 					.withOutput(changedArtifact)
-					.withTransformation(instance -> {
-						// instances that are not conform to the previous version must not be migrated
-						if (instance.getMetamodels().contains(changedArtifact.decrement())) {
-							log(String.format("[M2M] Migrating model %s", instance.version()));
-							// the migration must update the meta model to the changed model
-							Artifact migratedInstance = copyArtifact(instance)
-								.updateMetamodel(changedArtifact).build();
-							return Optional.of(migratedInstance);
-						}
-						return Optional.empty();
-						
-					})
+					.withTransformation(registry.create("model-migration", changedArtifact.name(), String.valueOf(changedArtifact.version())))
 					.build());
 			}
 			return Optional.empty();
-		}).build();
+		})).build();
 	private static final Artifact trafoCoEvGen = buildTransformation("trafoCoEvGen")
 		.withInput(coEvM.version())
 		.withOutput(trafoMM.version())
-		.withTransformation(m -> {
+		.withTransformation(registry.register("trafoCoEvGen", m -> {
 			if (m instanceof CoEvolutionModel coev) {
 				ArtifactVersion changedArtifact = coev.getChangedArtifact();
-				log("[CoEv] Creating transformation migration for " + changedArtifact);
+				emit(EventType.CO_EVOLUTION, changedArtifact, "Creating transformation migration for");
 				return Optional.of(buildTransformation(changedArtifact.name() + "-transformation-migration")
 					// signals that this transformation transforms other transformation
 					// this is a higher order transformation
 					.withInput(trafoMM.version())
 					.withOutput(trafoMM.version())
-					.withTransformation(t -> {
-						// this condition is important to prevent a loop
-						// only transformations that are dependent on the previous version must be migrated
-						if (t.getInputs().contains(changedArtifact.decrement())
-							|| t.getOutputs().contains(changedArtifact.decrement())) {
-							log(String.format("[M2M] Migrating transformation %s", t.version()));
-							// the migration must update the dependency to the changed model
-							Artifact migratedTransformation = copyArtifact(t)
-								.updateDependency(changedArtifact).build();
-							return Optional.of(migratedTransformation);
-						}
-						return Optional.empty();
-					})
+					.withTransformation(registry.create("transformation-migration", changedArtifact.name(), String.valueOf(changedArtifact.version())))
 					.build());
 			}
 			return Optional.empty();
-		}).build();
+		})).build();
+	
+	private static Function<Artifact, Optional<Artifact>> modelMigration(List<String> arguments) {
+		ArtifactVersion changedArtifact = new ArtifactVersion(arguments.get(0), Integer.parseInt(arguments.get(1)));
+		return instance -> {
+			// instances that are not conform to the previous version must not be migrated
+			if (instance.getMetamodels().contains(changedArtifact.decrement())) {
+				emit(EventType.MIGRATE, instance.version(), "model");
+				// the migration must update the meta model to the changed model
+				Artifact migratedInstance = copyArtifact(instance)
+					.updateMetamodel(changedArtifact).build();
+				return Optional.of(migratedInstance);
+			}
+			return Optional.empty();
+			
+		};
+	}
+	
+	private static Function<Artifact, Optional<Artifact>> transformationMigration(List<String> arguments) {
+		ArtifactVersion changedArtifact = new ArtifactVersion(arguments.get(0), Integer.parseInt(arguments.get(1)));
+		return t -> {
+			// this condition is important to prevent a loop
+			// only transformations that are dependent on the previous version must be migrated
+			if (t.getInputs().contains(changedArtifact.decrement())
+				|| t.getOutputs().contains(changedArtifact.decrement())) {
+				emit(EventType.MIGRATE, t.version(), "transformation");
+				// the migration must update the dependency to the changed model
+				Artifact migratedTransformation = copyArtifact(t)
+					.updateDependency(changedArtifact).build();
+				return Optional.of(migratedTransformation);
+			}
+			return Optional.empty();
+		};
+	}
+	
+	private static Function<Artifact, Optional<Artifact>> generation(List<String> arguments) {
+		ArtifactVersion output = new ArtifactVersion(arguments.get(0), Integer.parseInt(arguments.get(1)));
+		String name = arguments.get(2);
+		return m -> {
+			emit(EventType.GENERATE, m.version(), output.name());
+			return Optional.of(buildArtifact(m.version().name() + "-" + name)
+				.withMetamodel(output).build());
+		};
+	}
 	
 	public static void main(String[] args) {
+		try {
+			run(args);
+		} finally {
+			// print everything that is still buffered
+			events.close();
+			if (events.getFailures() > 0) {
+				System.err.println(events.getFailures() + " events couldn't be consumed");
+			}
+		}
+	}
+	
+	private static void run(String[] args) {
 		if (args.length > 0) {
-			if (args.length > 1 && "-d".equals(args[1])) {
+			List<String> flags = Arrays.asList(args).subList(1, args.length);
+			if (flags.contains("-d")) {
 				debug = true;
 			}
+			if (flags.contains("-j")) {
+				events.close();
+				events = new EventStream(new JsonEventConsumer(System.out), 1 << 14);
+			} else if (flags.contains("-q")) {
+				events.close();
+				events = new EventStream(EventConsumer.NONE, 1);
+			}
+			if (flags.contains("-i")) {
+				impact = true;
+			}
+			PropagationEngine engine = flags.contains("-p")
+				? PropagationEngine.topological(ForkJoinPool.commonPool())
+				: PropagationEngine.topological();
+			TransformationMetrics metrics = new TransformationMetrics();
+			if (flags.contains("-m")) {
+				engine.withMetrics(metrics);
+			}
+			if (flags.contains("-v")) {
+				engine.withBlockingExecutor(BlockingExecutor.virtualThreads());
+			}
+			repo = new RepositoryImpl(IndexMode.INDEXED, engine)
+				.withDispatchMode(flags.contains("-l") ? DispatchMode.LATEST_ONLY : DispatchMode.ALL);
 			if ("-h".equals(args[0]) || "--help".equals(args[0])) {
 				printHelp();
+			} else if ("-b".equals(args[0])) {
+				runBenchmark(args);
+			} else if ("-g".equals(args[0])) {
+				runGeneratedEcosystem(args);
 			} else {
 				int index = Integer.parseInt(args[0]);
 				if (examples.containsKey(index)) {
 					Example example = examples.get(index);
 					log(String.format("Executing example %s: %s", index, example.description()));
 					example.runnable().run();
+					repo.awaitQuiescence();
+					if (flags.contains("-m")) {
+						log(metrics.toTable());
+					}
 				} else {
 					printHelp();
 				}
@@ -205,12 +391,71 @@ public class Main {
 	private static void printHelp() {
 		log("Provide an integer as the first argument to run the workflow for an example ecosystem");
 		log("Use the -d flag as the second argument to get verbose output");
+		log("Use the -i flag to print the estimated impact of a change before it is committed");
+		log("Use the -j flag to print events as JSON lines or the -q flag to discard them");
+		log("Use the -m flag to print the metrics of each transformation after an example");
+		log("Use the -p flag to apply the transformations of each dependency level in parallel");
+		log("Use the -l flag to only apply the latest version of each transformation");
+		log("Use the -v flag to apply blocking transformations like builds and deployments on virtual threads");
 		examples.forEach((i, e) -> log(String.format("%s: %s", i, e.description())));
+		log("Use -g followed by optional seed, meta models, instances, generators, depth and fan out to run a generated ecosystem");
+		log("Use -b followed by an integer and optional sizes to run a benchmark");
+		benchmarks.forEach((i, b) -> log(String.format("%s: %s", i, b.description())));
+	}
+	
+	private static void runBenchmark(String[] args) {
+		if (args.length < 2 || !benchmarks.containsKey(Integer.parseInt(args[1]))) {
+			printHelp();
+			return;
+		}
+		int index = Integer.parseInt(args[1]);
+		Benchmark benchmark = benchmarks.get(index);
+		int[] sizes = Arrays.stream(args, 2, args.length).mapToInt(Integer::parseInt).toArray();
+		report(String.format("Executing benchmark %s: %s", index, benchmark.description()));
+		// the benchmarks commit far too many artifacts to log every single one of them
+		EventStream stream = events;
+		events = new EventStream(EventConsumer.NONE, 1);
+		try {
+			benchmark.runnable().accept(sizes);
+		} finally {
+			events = stream;
+		}
+	}
+	
+	private static void runGeneratedEcosystem(String[] args) {
+		int[] shape = Arrays.stream(args, 1, args.length)
+			.filter(arg -> !arg.startsWith("-"))
+			.mapToInt(Integer::parseInt).toArray();
+		EcosystemGenerator generator = generateEcosystem().withCoEvolution(true);
+		if (shape.length > 0) {
+			generator.withSeed(shape[0]);
+		}
+		if (shape.length > 1) {
+			generator.withMetamodels(shape[1]);
+		}
+		if (shape.length > 2) {
+			generator.withInstances(shape[2]);
+		}
+		if (shape.length > 3) {
+			generator.withGenerators(shape[3]);
+		}
+		if (shape.length > 4) {
+			generator.withDepth(shape[4]);
+		}
+		if (shape.length > 5) {
+			generator.withFanOut(shape[5]);
+		}
+		log("Executing generated ecosystem: " + generator);
+		repo.commit(generator.generate().toArray(Artifact[]::new));
+		log("### Changing first meta model:");
+		repo.commit(buildArtifact(generator.metamodel(0)).withMetamodel(ecore.version()).build());
+		repo.awaitQuiescence();
 	}
 	
 	public static void example1() {
 		repo.commit(executable, deploymentPipeline, sourceCode, ecore, trafoMM, java, javaBuildPipeline, springBootPlatform, dotNetPlatform, pythonPlatform, microservice, microserviceToSpringBoot, microserviceToDotNet, customerMicroservice, shoppingCartMicroservice, orderMicroservice, microserviceToPython);
 		log("### Changing microservice meta model and migrating Spring Boot generator manually:");
+		logImpact(microservice.version());
 		repo.commit(microservice);
 		repo.commit(copyArtifact(customerMicroservice)
 			.updateMetamodel(microservice.version().increment()).build());
@@ -222,6 +467,7 @@ public class Main {
 		repo.commit(executable, deploymentPipeline, sourceCode, ecore, trafoMM, java, javaBuildPipeline, springBootPlatform, dotNetPlatform, pythonPlatform, coEvModelGen, modelCoEvGen, trafoCoEvGen, microservice, microserviceToSpringBoot, microserviceToDotNet, customerMicroservice, shoppingCartMicroservice, orderMicroservice, microserviceToPython);
 		// adding the meta model again will trigger the creation of a new version
 		log("### Changing microservice meta model:");
+		logImpact(microservice.version());
 		repo.commit(microservice);
 	}
 
@@ -229,6 +475,7 @@ public class Main {
 		repo.commit(executable, deploymentPipeline, sourceCode, ecore, trafoMM, java, javaBuildPipeline, springBootPlatform, dotNetPlatform, pythonPlatform, coEvModelGen, modelCoEvGen, trafoCoEvGen, microservice, microserviceToSpringBoot, microserviceToDotNet, customerMicroservice, shoppingCartMicroservice, orderMicroservice, microserviceToPython);
 		log("### Changing Spring Boot platform:");
 		// update the platform
+		logImpact(springBootPlatform.version());
 		repo.commit(springBootPlatform);
 		// update the generator
 		repo.commit(copyArtifact(microserviceToSpringBoot)
@@ -239,6 +486,7 @@ public class Main {
 		repo.commit(executable, deploymentPipeline, sourceCode, ecore, trafoMM, java, javaBuildPipeline, springBootPlatform, dotNetPlatform, pythonPlatform, coEvModelGen, modelCoEvGen, trafoCoEvGen, microservice, microserviceToSpringBoot, microserviceToDotNet, customerMicroservice, shoppingCartMicroservice, orderMicroservice, microserviceToPython);
 		log("### Changing Java version and migrating Spring Boot platform, Java build pipeline and Spring Boot Generator manually:");
 		// update java
+		logImpact(java.version());
 		repo.commit(java);
 		// manual co-evolution
 		repo.commit(copyArtifact(springBootPlatform)
@@ -249,254 +497,3865 @@ public class Main {
 			.updateDependency(springBootPlatform.version().increment()).build());
 	}
 	
-	public static void onChange(Repository repo, ArtifactVersion version) {
-		for (ArtifactVersion metamodel : repo.getMetamodels(version)) {
-			for (Transformation transformation : repo.getAcceptingTransformations(metamodel)) {
-				transformation.getTransformation().apply(repo.get(version)).ifPresent(repo::commit);
-			}
+	public static void benchmarkInstanceIndex(int[] sizes) {
+		if (sizes.length == 0) {
+			sizes = new int[] { 10_000, 100_000, 1_000_000 };
 		}
-		for (ArtifactVersion metamodel : repo.getInputs(version)) {
-			for (Artifact model : repo.getInstances(metamodel)) {
-				repo.get(version).asTransformation().map(Transformation::getTransformation)
-					.flatMap(t -> t.apply(model)).ifPresent(repo::commit);
+		for (int size : sizes) {
+			for (IndexMode mode : IndexMode.values()) {
+				// a full scan per commit is quadratic, larger repositories take too long
+				if (mode == IndexMode.SCAN && size > 10_000) {
+					report(String.format("%s artifacts, %s: skipped", size, mode));
+					continue;
+				}
+				long start = System.nanoTime();
+				bootstrap(new RepositoryImpl(mode), size);
+				long millis = (System.nanoTime() - start) / 1_000_000;
+				report(String.format("%s artifacts, %s: %s ms", size, mode, millis));
 			}
 		}
 	}
 	
-	public static interface Artifact {
-		
-		ArtifactVersion version();
-		
-		Set<ArtifactVersion> getMetamodels();
-		
-		Set<ArtifactVersion> getInputs();
-		
-		Set<ArtifactVersion> getOutputs();
-		
-		Optional<Transformation> asTransformation();
-		
+	// the generator of each group is committed last, so it has to look up all instances of its input
+	private static void bootstrap(Repository repo, int size) {
+		int groupSize = 100;
+		for (int group = 0; group * groupSize < size; group++) {
+			Artifact metamodel = buildArtifact("metamodel" + group).build();
+			repo.commit(metamodel);
+			int instances = Math.min(groupSize, size - group * groupSize) - 2;
+			for (int i = 0; i < instances; i++) {
+				repo.commit(buildArtifact("model" + group + "-" + i)
+					.withMetamodel(metamodel.version()).build());
+			}
+			repo.commit(buildTransformation("generator" + group)
+				.withInput(metamodel.version())
+				.withTransformation(m -> Optional.empty())
+				.build());
+		}
 	}
 	
-	public record ArtifactVersion(String name, int version) {
-		
-		public ArtifactVersion increment() {
-			return new ArtifactVersion(name, version + 1);
+	public static void benchmarkPropagationChain(int[] sizes) {
+		if (sizes.length == 0) {
+			sizes = new int[] { 10_000, 100_000 };
 		}
-		
-		public ArtifactVersion decrement() {
-			if (isInitialVersion()) {
-				throw new IllegalStateException("Can't create previous version for initial version");
+		Map<String, Supplier<PropagationEngine>> engines = new LinkedHashMap<>();
+		engines.put("BFS", PropagationEngine::breadthFirst);
+		engines.put("DFS", PropagationEngine::depthFirst);
+		engines.put("PRIORITY", () -> PropagationEngine.prioritized(
+			Comparator.comparing((Application a) -> a.transformation().version().name())));
+		engines.put("TOPOLOGICAL", PropagationEngine::topological);
+		for (int size : sizes) {
+			for (Map.Entry<String, Supplier<PropagationEngine>> entry : engines.entrySet()) {
+				PropagationEngine engine = entry.getValue().get();
+				Repository repo = new RepositoryImpl(IndexMode.INDEXED, engine);
+				long start = System.nanoTime();
+				chain(repo, size);
+				long millis = (System.nanoTime() - start) / 1_000_000;
+				report(String.format("chain of %s generators, %s: %s ms, %s", size, entry.getKey(), millis, engine.getMetrics()));
 			}
-			return new ArtifactVersion(name, version - 1);
 		}
-		
-		public boolean isInitialVersion() {
-			return version == 0;
+	}
+	
+	// each generator transforms the output of its predecessor
+	private static void chain(Repository repo, int length) {
+		for (int i = 0; i < length; i++) {
+			ArtifactVersion output = new ArtifactVersion("level" + (i + 1), 0);
+			String generated = "model" + (i + 1);
+			repo.commit(buildTransformation("generator" + i)
+				.withInput(new ArtifactVersion("level" + i, 0))
+				.withOutput(output)
+				.withTransformation(m -> Optional.of(buildArtifact(generated)
+					.withMetamodel(output).build()))
+				.build());
 		}
-		
+		repo.commit(buildArtifact("model").withMetamodel(new ArtifactVersion("level0", 0)).build());
 	}
 	
-	public static interface Transformation extends Artifact {
-		
-		Function<Artifact, Optional<Artifact>> getTransformation();
-		
+	public static void benchmarkParallelPropagation(int[] sizes) {
+		if (sizes.length == 0) {
+			sizes = new int[] { 100, 1_000 };
+		}
+		Map<String, Supplier<PropagationEngine>> engines = new LinkedHashMap<>();
+		engines.put("sequential", PropagationEngine::breadthFirst);
+		engines.put("parallel", () -> PropagationEngine.parallel(ForkJoinPool.commonPool()));
+		engines.put("parallel by level", () -> PropagationEngine.topological(ForkJoinPool.commonPool()));
+		for (int size : sizes) {
+			for (Map.Entry<String, Supplier<PropagationEngine>> entry : engines.entrySet()) {
+				Repository repo = new RepositoryImpl(IndexMode.INDEXED, entry.getValue().get());
+				long start = System.nanoTime();
+				fanOut(repo, size, 8, 1_000_000);
+				long millis = (System.nanoTime() - start) / 1_000_000;
+				report(String.format("%s models, %s: %s ms", size, entry.getKey(), millis));
+			}
+		}
 	}
 	
-	public static interface CoEvolutionModel extends Artifact {
-		
-		ArtifactVersion getChangedArtifact();
-		
+	private static void fanOut(Repository repo, int models, int generators, long nanosPerApplication) {
+		Artifact metamodel = buildArtifact("metamodel").build();
+		repo.commit(metamodel);
+		for (int i = 0; i < generators; i++) {
+			String suffix = "Gen" + i;
+			repo.commit(buildTransformation("generator" + i)
+				.withInput(metamodel.version())
+				.withTransformation(m -> {
+					long end = System.nanoTime() + nanosPerApplication;
+					while (System.nanoTime() < end) {
+						Thread.onSpinWait();
+					}
+					return Optional.of(buildArtifact(m.version().name() + suffix).build());
+				})
+				.build());
+		}
+		for (int i = 0; i < models; i++) {
+			repo.commit(buildArtifact("model" + i).withMetamodel(metamodel.version()).build());
+		}
 	}
 	
-	public static class ArtifactImpl implements Artifact {
-
-		private final ArtifactVersion version;
-		private final Set<ArtifactVersion> metamodels;
-		private final Set<ArtifactVersion> inputs;
-		private final Set<ArtifactVersion> outputs;
-		
-		public ArtifactImpl(ArtifactVersion version, Set<ArtifactVersion> metamodels, Set<ArtifactVersion> inputs, Set<ArtifactVersion> outputs) {
-			this.version = version;
-			this.metamodels = Collections.unmodifiableSet(metamodels);
-			this.inputs = Collections.unmodifiableSet(inputs);
-			this.outputs = Collections.unmodifiableSet(outputs);
+	public static void benchmarkConcurrentCommits(int[] sizes) {
+		if (sizes.length == 0) {
+			sizes = new int[] { 10_000, 100_000 };
 		}
-		
-		@Override
-		public ArtifactVersion version() {
-			return version;
+		int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+		int names = 16;
+		for (int size : sizes) {
+			Repository repo = new ConcurrentRepositoryImpl();
+			Artifact metamodel = buildArtifact("metamodel").build();
+			repo.commit(metamodel);
+			// every generated model is committed concurrently by all threads as well
+			repo.commit(buildTransformation("generator")
+				.withInput(metamodel.version())
+				.withTransformation(m -> Optional.of(buildArtifact("generated").build()))
+				.build());
+			int perThread = size / threads;
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<?>> producers = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				producers.add(executor.submit(() -> {
+					start.await();
+					for (int i = 0; i < perThread; i++) {
+						repo.commit(buildArtifact("model" + i % names).withMetamodel(metamodel.version()).build());
+					}
+					return null;
+				}));
+			}
+			long begin = System.nanoTime();
+			start.countDown();
+			try {
+				for (Future<?> producer : producers) {
+					producer.get();
+				}
+			} catch (InterruptedException | ExecutionException e) {
+				throw new IllegalStateException("Producer failed", e);
+			} finally {
+				executor.shutdown();
+			}
+			long millis = (System.nanoTime() - begin) / 1_000_000;
+			int commits = perThread * threads;
+			// all versions of a name must be taken without gaps or duplicates
+			for (int n = 0; n < names; n++) {
+				int expected = (perThread / names + (n < perThread % names ? 1 : 0)) * threads;
+				assertVersions(repo, "model" + n, expected);
+			}
+			assertVersions(repo, "generated", commits);
+			report(String.format("%s commits by %s threads: %s ms, no version was committed twice", commits, threads, millis));
 		}
-		
-		@Override
-		public Set<ArtifactVersion> getMetamodels() {
-			return metamodels;
+	}
+	
+	public static void benchmarkVersionAllocation(int[] sizes) {
+		if (sizes.length == 0) {
+			sizes = new int[] { 10_000, 100_000, 1_000_000 };
 		}
-
-		@Override
-		public Set<ArtifactVersion> getInputs() {
-			return inputs;
+		for (int size : sizes) {
+			Repository repo = new RepositoryImpl();
+			Artifact artifact = buildArtifact("artifact").build();
+			long start = System.nanoTime();
+			for (int i = 0; i < size; i++) {
+				repo.commit(artifact);
+			}
+			long millis = (System.nanoTime() - start) / 1_000_000;
+			report(String.format("%s versions: %s ms, latest %s", size, millis, repo.latest("artifact").orElseThrow()));
 		}
-		
-		@Override
-		public Set<ArtifactVersion> getOutputs() {
-			return outputs;
+	}
+	
+	public static void benchmarkInternedVersions(int[] sizes) {
+		if (sizes.length == 0) {
+			sizes = new int[] { 100_000, 1_000_000 };
 		}
-		
-		@Override
-		public Optional<Transformation> asTransformation() {
-			return Optional.ofNullable(this)
-				.filter(Transformation.class::isInstance)
-				.map(Transformation.class::cast);
+		for (int size : sizes) {
+			for (IndexMode mode : List.of(IndexMode.INDEXED, IndexMode.INTERNED)) {
+				long before = usedHeap();
+				Repository repo = new RepositoryImpl(mode);
+				long start = System.nanoTime();
+				Artifact metamodel = buildArtifact("metamodel").build();
+				repo.commit(metamodel);
+				// names are shared by several versions like the jars built for every version of a model
+				for (int i = 1; i < size; i++) {
+					repo.commit(buildArtifact("model" + i % (size / 10)).withMetamodel(metamodel.version()).build());
+				}
+				long millis = (System.nanoTime() - start) / 1_000_000;
+				long bytes = usedHeap() - before;
+				report(String.format("%s artifacts, %s: %s ms, %s MB, %s bytes per artifact", size, mode, millis, bytes / 1_000_000, bytes / size));
+				// keep the repository reachable until its heap usage has been measured
+				Objects.requireNonNull(repo);
+			}
 		}
-		
-		@Override
-		public boolean equals(Object o) {
-			if (o == this) {
-				return true;
+	}
+	
+	public static void benchmarkInstanceSets(int[] sizes) {
+		if (sizes.length == 0) {
+			sizes = new int[] { 100_000, 1_000_000 };
+		}
+		for (int size : sizes) {
+			Repository repo = new RepositoryImpl();
+			Artifact metamodel = buildArtifact("metamodel").build();
+			repo.commit(metamodel);
+			for (int i = 0; i < size; i++) {
+				repo.commit(buildArtifact("model" + i).withMetamodel(metamodel.version()).build());
 			}
-			if (!(o instanceof Artifact)) {
-				return false;
+			// equal artifacts that are not the committed instances, as they are built by migrations
+			List<Artifact> copies = new ArrayList<>(size);
+			for (int i = 0; i < size; i += 2) {
+				copies.add(buildArtifact("model" + i).withMetamodel(metamodel.version()).build());
 			}
-			Artifact other = (Artifact) o;
-			return Objects.equals(version, other.version());
+			long start = System.nanoTime();
+			Set<Artifact> instances = repo.getInstances(metamodel.version());
+			long copied = System.nanoTime();
+			long found = copies.stream().filter(instances::contains).count();
+			long looked = System.nanoTime();
+			instances.removeAll(copies);
+			long removed = System.nanoTime();
+			report(String.format("%s instances: getInstances %s ms, %s contains %s ms (%s found), removeAll %s ms (%s left)",
+				size, (copied - start) / 1_000_000, copies.size(), (looked - copied) / 1_000_000, found,
+				(removed - looked) / 1_000_000, instances.size()));
 		}
-		
-		@Override
-		public String toString() {
-			if (debug) {
-				return String.format("%s; metamodels=%s; inputs=%s; outputs=%s", version, metamodels, inputs, outputs);
+	}
+	
+	public static void benchmarkSyntheticEcosystem(int[] sizes) {
+		int[] shape = { 10, 100, 2, 3 };
+		System.arraycopy(sizes, 0, shape, 0, Math.min(sizes.length, shape.length));
+		int metamodels = shape[0];
+		int instances = shape[1];
+		int generators = shape[2];
+		int depth = shape[3];
+		int warmups = 3;
+		int iterations = 5;
+		report(String.format("%s meta models, %s instances each, %s generators per level, depth %s", metamodels, instances, generators, depth));
+		for (int iteration = 0; iteration < warmups + iterations; iteration++) {
+			String label = iteration < warmups ? "warmup " + (iteration + 1) : "iteration " + (iteration - warmups + 1);
+			Repository repo = new RepositoryImpl();
+			EcosystemGenerator generator = generateEcosystem()
+				.withMetamodels(metamodels)
+				.withInstances(instances)
+				.withGenerators(generators)
+				.withDepth(depth);
+			List<Artifact> ecosystem = generator.generate();
+			long allocated = allocatedBytes();
+			long start = System.nanoTime();
+			ecosystem.forEach(repo::commit);
+			long nanos = System.nanoTime() - start;
+			allocated = allocatedBytes() - allocated;
+			PropagationMetrics metrics = ((RepositoryImpl) repo).getPropagationEngine().getMetrics();
+			// every commit of the ecosystem and every application of a generator results in a commit
+			long commits = ecosystem.size() + metrics.processed();
+			// a single additional model and its whole cascade, measured once the ecosystem is in place
+			long[] latencies = new long[metamodels];
+			for (int m = 0; m < metamodels; m++) {
+				Artifact model = buildArtifact("additionalModel" + m)
+					.withMetamodel(generator.metamodel(m)).build();
+				long begin = System.nanoTime();
+				repo.commit(model);
+				latencies[m] = System.nanoTime() - begin;
 			}
-			return version.toString();
+			Arrays.sort(latencies);
+			report(String.format("%s: %s commits, %s commits/s, %s bytes/commit, propagation latency p50 %s us, max %s us",
+				label, commits, commits * 1_000_000_000 / Math.max(1, nanos), allocated / commits,
+				latencies[latencies.length / 2] / 1_000, latencies[latencies.length - 1] / 1_000));
 		}
-		
 	}
 	
-	public static class TransformationImpl extends ArtifactImpl implements Transformation {
-		
-		private final Function<Artifact, Optional<Artifact>> transformation;
-		
-		public TransformationImpl(ArtifactVersion version, Set<ArtifactVersion> metamodels, Set<ArtifactVersion> inputs, Set<ArtifactVersion> outputs, Function<Artifact, Optional<Artifact>> transformation) {
-			super(version, metamodels, inputs, outputs);
-			this.transformation = transformation;
-		}
-
-		@Override
-		public Function<Artifact, Optional<Artifact>> getTransformation() {
-			return transformation;
+	public static void benchmarkBatchCommit(int[] sizes) {
+		if (sizes.length == 0) {
+			sizes = new int[] { 10, 100 };
 		}
-		
-		@Override
-		public boolean equals(Object obj) {
-			return super.equals(obj);
+		for (int size : sizes) {
+			List<Artifact> ecosystem = generateEcosystem().withMetamodels(size).generate();
+			// every generator is updated within the same batch, e.g. after a manual migration
+			List<Artifact> batch = new ArrayList<>(ecosystem);
+			ecosystem.stream().filter(Transformation.class::isInstance).forEach(batch::add);
+			RepositoryImpl single = new RepositoryImpl();
+			long start = System.nanoTime();
+			batch.forEach(single::commit);
+			long singleMillis = (System.nanoTime() - start) / 1_000_000;
+			RepositoryImpl batched = new RepositoryImpl();
+			start = System.nanoTime();
+			batched.commit(batch.toArray(Artifact[]::new));
+			long batchMillis = (System.nanoTime() - start) / 1_000_000;
+			report(String.format("%s artifacts, single commits: %s applications in %s ms, batch commit: %s applications in %s ms",
+				batch.size(), single.getPropagationEngine().getMetrics().processed(), singleMillis,
+				batched.getPropagationEngine().getMetrics().processed(), batchMillis));
 		}
-		
 	}
 	
-	public static class CoEvolutionModelImpl extends ArtifactImpl implements CoEvolutionModel {
-		
-		private final ArtifactVersion changedArtifact;
-		
-		public CoEvolutionModelImpl(ArtifactVersion version, Set<ArtifactVersion> metamodels, Set<ArtifactVersion> inputs, Set<ArtifactVersion> outputs, ArtifactVersion changedArtifact) {
-			super(version, metamodels, inputs, outputs);
-			this.changedArtifact = changedArtifact;
+	public static void benchmarkTransformationCache(int[] sizes) {
+		if (sizes.length == 0) {
+			sizes = new int[] { 100, 1_000 };
 		}
-		
-		@Override
-		public ArtifactVersion getChangedArtifact() {
-			return changedArtifact;
+		for (int size : sizes) {
+			TransformationCache cache = new TransformationCache(size * 8);
+			for (String run : List.of("initial build", "rebuild")) {
+				Repository repo = new RepositoryImpl(IndexMode.INDEXED, PropagationEngine.breadthFirst().withCache(cache));
+				long start = System.nanoTime();
+				fanOut(repo, size, 8, 100_000);
+				long millis = (System.nanoTime() - start) / 1_000_000;
+				report(String.format("%s models, %s: %s ms, %s", size, run, millis, cache.getMetrics()));
+			}
 		}
-		
-		@Override
-		public boolean equals(Object obj) {
-			return super.equals(obj);
+	}
+	
+	public static void benchmarkCommitLogRecovery(int[] sizes) {
+		if (sizes.length == 0) {
+			sizes = new int[] { 100_000, 1_000_000 };
 		}
-		
-		@Override
-		public String toString() {
-			if (debug) {
-				return String.format("%s; changedArtifact=%s", super.toString(), changedArtifact);
+		for (int size : sizes) {
+			Path path = null;
+			try {
+				path = Files.createTempFile("commits", ".log");
+				Artifact metamodel = buildArtifact("metamodel").build();
+				TransformationRegistry registry = new TransformationRegistry();
+				RegisteredTransformation generate = registry.register("generate", m -> Optional.of(buildArtifact(m.version().name() + "Gen").build()));
+				long start = System.nanoTime();
+				try (CommitLog commitLog = new CommitLog(path, 10_000)) {
+					Repository repo = new RepositoryImpl().withCommitLog(commitLog);
+					repo.commit(metamodel);
+					repo.commit(buildTransformation("generator").withInput(metamodel.version()).withTransformation(generate).build());
+					// every model is logged together with its generated artifact
+					for (int i = 0; i < size / 2 - 1; i++) {
+						repo.commit(buildArtifact("model" + i).withMetamodel(metamodel.version()).build());
+					}
+				}
+				long written = System.nanoTime();
+				RepositoryImpl recovered = new RepositoryImpl();
+				long entries = recovered.recover(path, registry);
+				long read = System.nanoTime();
+				report(String.format("%s entries, %s MB: writing %s ms, recovery %s ms, %s instances recovered", entries,
+					Files.size(path) / 1_000_000, (written - start) / 1_000_000, (read - written) / 1_000_000,
+					recovered.getInstances(metamodel.version()).size()));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				deleteQuietly(path);
 			}
-			return super.toString();
 		}
-		
 	}
 	
-	public interface Repository {
-
-		Artifact get(ArtifactVersion version);
-
-		Set<Artifact> getInstances(ArtifactVersion version);
-
-		Set<ArtifactVersion> getMetamodels(ArtifactVersion version);
-
-		Set<ArtifactVersion> getInputs(ArtifactVersion version);
-
-		Set<Transformation> getAcceptingTransformations(ArtifactVersion version);
-
-		void commit(Artifact a);
-
-		void commit(Artifact... a);
-
+	public static void benchmarkSnapshot(int[] sizes) {
+		if (sizes.length == 0) {
+			sizes = new int[] { 100_000, 1_000_000 };
+		}
+		for (int size : sizes) {
+			Path path = null;
+			try {
+				path = Files.createTempFile("repository", ".snapshot");
+				RepositoryImpl repo = new RepositoryImpl();
+				// groups of a meta model with its instances and a generator accepting them
+				bootstrap(repo, size);
+				long start = System.nanoTime();
+				RepositorySnapshot.write(repo.getArtifacts(), repo::getGeneratedMetamodels, path);
+				long written = System.nanoTime();
+				RepositorySnapshot snapshot = RepositorySnapshot.open(path, new TransformationRegistry());
+				long opened = System.nanoTime();
+				int queries = 10_000;
+				Random random = new Random(0);
+				long found = 0;
+				for (int i = 0; i < queries; i++) {
+					int group = random.nextInt(size / 100);
+					ArtifactVersion metamodel = new ArtifactVersion("metamodel" + group, 0);
+					found += snapshot.getInstances(metamodel).size();
+					found += snapshot.getMetamodels(new ArtifactVersion("model" + group + "-" + random.nextInt(98), 0)).size();
+					found += snapshot.get(new ArtifactVersion("generator" + group, 0)) == null ? 0 : 1;
+				}
+				long queried = System.nanoTime();
+				// a repository that commits can be resumed from the snapshot, which decodes every artifact
+				RepositoryImpl resumed = new RepositoryImpl();
+				resumed.recover(snapshot);
+				long restored = System.nanoTime();
+				report(String.format("%s artifacts, %s MB: writing %s ms, opening %s ms, %s x (getInstances, getMetamodels, get) %s ms, %s results, restoring a repository %s ms",
+					snapshot.size(), Files.size(path) / 1_000_000, (written - start) / 1_000_000, (opened - written) / 1_000_000,
+					queries, (queried - opened) / 1_000_000, found, (restored - queried) / 1_000_000));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				deleteQuietly(path);
+			}
+		}
 	}
 	
-	public static class RepositoryImpl implements Repository {
-		
-		private Map<ArtifactVersion, Artifact> artifactsByVersion = new HashMap<>();
-		
-		@Override
-		public Artifact get(ArtifactVersion version) {
-			return artifactsByVersion.get(version);
+	public static void benchmarkImpact(int[] sizes) {
+		if (sizes.length == 0) {
+			sizes = new int[] { 10, 100 };
 		}
-		
-		@Override
-		public Set<Artifact> getInstances(ArtifactVersion version) {
-			return artifactsByVersion.values().stream()
-				// find any model that has declared the argument as meta model
-				.filter(m1 -> m1.getMetamodels().contains(version))
-				.collect(Collectors.toSet());
+		for (int size : sizes) {
+			RepositoryImpl repo = new RepositoryImpl();
+			EcosystemGenerator generator = generateEcosystem().withMetamodels(size).withDepth(5);
+			List<Artifact> ecosystem = generator.generate();
+			repo.commit(ecosystem.toArray(Artifact[]::new));
+			List<Artifact> models = ecosystem.stream().filter(a -> a.version().name().startsWith("model")).limit(1_000).toList();
+			long estimated = 0;
+			long start = System.nanoTime();
+			for (Artifact model : models) {
+				estimated += repo.impact(model.version()).applications();
+			}
+			long estimateNanos = System.nanoTime() - start;
+			long processed = repo.getPropagationEngine().getMetrics().processed();
+			start = System.nanoTime();
+			models.forEach(repo::commit);
+			long commitNanos = System.nanoTime() - start;
+			long actual = repo.getPropagationEngine().getMetrics().processed() - processed;
+			report(String.format("%s artifacts, %s changed models: %s applications estimated in %s us, %s applications propagated in %s us",
+				repo.getArtifacts().size(), models.size(), estimated, estimateNanos / 1_000, actual, commitNanos / 1_000));
 		}
-		
-		@Override
-		public Set<ArtifactVersion> getMetamodels(ArtifactVersion version) {
-			return Optional.ofNullable(version)
-				.map(artifactsByVersion::get)
-				.map(Artifact::getMetamodels)
-				.orElse(Collections.emptySet());
+	}
+	
+	public static void benchmarkRunawayPropagation(int[] sizes) {
+		if (sizes.length == 0) {
+			sizes = new int[] { 100, 10_000 };
 		}
-		
-		@Override
-		public Set<ArtifactVersion> getInputs(ArtifactVersion version) {
-			return Optional.ofNullable(version)
-				.map(artifactsByVersion::get)
-				.map(Artifact::getInputs)
-				.orElse(Collections.emptySet());
+		for (int size : sizes) {
+			// a migration of transformations that lacks the condition of the transformation migrations of the examples
+			Repository repo = new RepositoryImpl(IndexMode.INDEXED, PropagationEngine.topological().withMaxDepth(size));
+			repo.commit(trafoMM);
+			repo.commit(buildTransformation("generator").withMetamodel(trafoMM.version())
+				.withTransformation(m -> Optional.empty()).build());
+			reportRunaway(String.format("depth budget %s, cyclic migration", size), () -> repo.commit(buildTransformation("migration")
+				.withInput(trafoMM.version())
+				.withOutput(trafoMM.version())
+				.withTransformation(t -> Optional.of(copyArtifact(t).build()))
+				.build()));
+			// a generator that transforms its own outputs, each of which has a new name
+			Artifact metamodel = buildArtifact("metamodel").build();
+			repo.commit(metamodel);
+			repo.commit(buildTransformation("unbounded").withInput(metamodel.version()).withOutput(metamodel.version())
+				.withTransformation(m -> Optional.of(buildArtifact(m.version().name() + "'").withMetamodel(metamodel.version()).build()))
+				.build());
+			reportRunaway(String.format("depth budget %s, unbounded generator", size), () -> repo.commit(buildArtifact("m")
+				.withMetamodel(metamodel.version()).build()));
+			// a loop that only starts after an earlier application of the same transformation and input name has died out
+			Artifact looping = buildArtifact("looping").build();
+			repo.commit(looping);
+			reportRunaway(String.format("depth budget %s, loop after a dead end", size), () -> repo.commit(
+				buildTransformation("rebound").withInput(looping.version()).withOutput(looping.version())
+					.withTransformation(m -> Optional.of(m.version().equals(new ArtifactVersion("l", 0))
+						? buildArtifact("deadEnd").build()
+						: buildArtifact("l").withMetamodel(looping.version()).build()))
+					.build(),
+				buildArtifact("l").withMetamodel(looping.version()).build(),
+				buildArtifact("k").withMetamodel(looping.version()).build()));
 		}
-		
-		@Override
+	}
+	
+	public static void benchmarkRetention(int[] sizes) {
+		if (sizes.length == 0) {
+			sizes = new int[] { 50, 100 };
+		}
+		int models = 500;
+		for (int rounds : sizes) {
+			for (RetentionPolicy policy : List.of(RetentionPolicy.KEEP_ALL, new RetentionPolicy(3), new RetentionPolicy(1))) {
+				long before = usedHeap();
+				RepositoryImpl repo = new RepositoryImpl().withRetentionPolicy(policy);
+				long start = System.nanoTime();
+				Artifact metamodel = buildArtifact("metamodel").build();
+				Artifact code = buildArtifact("code").build();
+				Transformation generator = buildTransformation("generator")
+					.withInput(metamodel.version())
+					.withOutput(code.version())
+					.withTransformation(m -> Optional.of(buildArtifact(m.version().name() + "Gen").withMetamodel(code.version()).build()))
+					.build();
+				repo.commit(metamodel, code, generator);
+				// every round changes each model and every tenth round the generator, which regenerates all models
+				for (int round = 0; round < rounds; round++) {
+					for (int i = 0; i < models; i++) {
+						repo.commit(buildArtifact("model" + i).withMetamodel(metamodel.version()).build());
+					}
+					if (round % 10 == 9) {
+						repo.commit(generator);
+					}
+				}
+				long millis = (System.nanoTime() - start) / 1_000_000;
+				long bytes = usedHeap() - before;
+				report(String.format("%s rounds, keeping %s versions: %s ms, %s artifacts, %s collected, %s MB",
+					rounds, policy.keepsAll() ? "all" : policy.keepVersions(), millis, repo.getArtifacts().size(),
+					repo.getCollected(), bytes / 1_000_000));
+				// keep the repository reachable until its heap usage has been measured
+				Objects.requireNonNull(repo);
+			}
+		}
+	}
+	
+	public static void benchmarkVersionSets(int[] sizes) {
+		if (sizes.length == 0) {
+			sizes = new int[] { 100_000, 1_000_000 };
+		}
+		Map<String, Function<Set<ArtifactVersion>, Set<ArtifactVersion>>> representations = new LinkedHashMap<>();
+		representations.put("HASH SET", versions -> Collections.unmodifiableSet(new HashSet<>(versions)));
+		representations.put("VERSION SET", VersionSet::copyOf);
+		int groupSize = 100;
+		for (int size : sizes) {
+			for (Map.Entry<String, Function<Set<ArtifactVersion>, Set<ArtifactVersion>>> entry : representations.entrySet()) {
+				long before = usedHeap();
+				// the meta models, inputs and outputs of the artifacts committed by bootstrap
+				List<List<Set<ArtifactVersion>>> artifacts = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) {
+					ArtifactVersion metamodel = new ArtifactVersion("metamodel" + i / groupSize, 0);
+					boolean generator = i % groupSize == groupSize - 1;
+					artifacts.add(List.of(
+						entry.getValue().apply(i % groupSize == 0 || generator ? Set.of() : Set.of(metamodel)),
+						entry.getValue().apply(generator ? Set.of(metamodel) : Set.of()),
+						entry.getValue().apply(Set.of())));
+				}
+				long bytes = usedHeap() - before;
+				// the filters of a repository in scan mode, each one testing every artifact
+				int queries = 100;
+				long matches = 0;
+				long start = System.nanoTime();
+				for (int q = 0; q < queries; q++) {
+					ArtifactVersion version = new ArtifactVersion("metamodel" + q * (size / groupSize) / queries, 0);
+					for (List<Set<ArtifactVersion>> sets : artifacts) {
+						if (sets.get(0).contains(version) || sets.get(1).contains(version)) {
+							matches++;
+						}
+					}
+				}
+				long millis = (System.nanoTime() - start) / 1_000_000;
+				report(String.format("%s artifacts, %s: %s MB, %s bytes per artifact, %s ms for %s scans with %s matches",
+					size, entry.getKey(), bytes / 1_000_000, bytes / size, millis, queries, matches));
+				// keep the sets reachable until their heap usage has been measured
+				Objects.requireNonNull(artifacts);
+			}
+			long before = usedHeap();
+			Repository repo = new RepositoryImpl();
+			long start = System.nanoTime();
+			bootstrap(repo, size);
+			long millis = (System.nanoTime() - start) / 1_000_000;
+			long bytes = usedHeap() - before;
+			report(String.format("%s artifacts, repository with version sets: %s ms, %s MB", size, millis, bytes / 1_000_000));
+			Objects.requireNonNull(repo);
+		}
+	}
+	
+	public static void benchmarkBlockingTransformations(int[] sizes) {
+		if (sizes.length == 0) {
+			sizes = new int[] { 100, 1_000 };
+		}
+		Map<String, Supplier<BlockingExecutor>> executors = new LinkedHashMap<>();
+		executors.put("INLINE", () -> null);
+		executors.put("CACHED THREADS", BlockingExecutor::cachedThreads);
+		boolean virtual;
+		try (BlockingExecutor probe = BlockingExecutor.virtualThreads()) {
+			virtual = probe.isVirtual();
+		}
+		executors.put(virtual ? "VIRTUAL THREADS" : "VIRTUAL THREADS (unsupported, cached threads)", BlockingExecutor::virtualThreads);
+		for (int size : sizes) {
+			for (Map.Entry<String, Supplier<BlockingExecutor>> entry : executors.entrySet()) {
+				BlockingExecutor executor = entry.getValue().get();
+				RepositoryImpl repo = new RepositoryImpl(IndexMode.INDEXED, PropagationEngine.topological().withBlockingExecutor(executor));
+				Artifact binary = buildArtifact("binary").build();
+				Artifact code = buildArtifact("code").build();
+				AtomicLong deployed = new AtomicLong();
+				repo.commit(binary, code);
+				repo.commit(buildTransformation("build")
+					.withInput(code.version())
+					.withOutput(binary.version())
+					.withTransformation(m -> {
+						LockSupport.parkNanos(1_000_000);
+						return Optional.of(buildArtifact(m.version().name() + ".jar").withMetamodel(binary.version()).build());
+					})
+					.withBlocking(true)
+					.build());
+				repo.commit(buildTransformation("deploy")
+					.withInput(binary.version())
+					.withTransformation(m -> {
+						LockSupport.parkNanos(1_000_000);
+						deployed.incrementAndGet();
+						return Optional.empty();
+					})
+					.withBlocking(true)
+					.build());
+				long start = System.nanoTime();
+				for (int i = 0; i < size; i++) {
+					repo.commit(buildArtifact("service" + i).withMetamodel(code.version()).build());
+				}
+				long committed = System.nanoTime();
+				repo.awaitQuiescence();
+				long quiescent = System.nanoTime();
+				report(String.format("%s services, %s: %s ms until committed, %s ms until %s are deployed",
+					size, entry.getKey(), (committed - start) / 1_000_000, (quiescent - start) / 1_000_000, deployed.get()));
+				if (executor != null) {
+					executor.close();
+				}
+			}
+		}
+	}
+	
+	public static void benchmarkCopyAllocations(int[] sizes) {
+		if (sizes.length == 0) {
+			sizes = new int[] { 100_000, 1_000_000 };
+		}
+		ArtifactVersion metamodel = new ArtifactVersion("metamodel", 0);
+		ArtifactVersion platform = new ArtifactVersion("platform", 0);
+		Transformation generator = buildTransformation("generator")
+			.withMetamodel(trafoMM.version())
+			.withInput(metamodel)
+			.withInput(platform)
+			.withOutput(sourceCode.version())
+			.withTransformation(m -> Optional.empty())
+			.build();
+		Map<String, Supplier<Artifact>> paths = new LinkedHashMap<>();
+		// the sets are rebuilt element by element as before they were shared
+		paths.put("REBUILT SETS", () -> {
+			TransformationBuilder builder = buildTransformation(generator.version().increment()).withTransformation(generator.getTransformation());
+			generator.getMetamodels().forEach(builder::withMetamodel);
+			generator.getInputs().forEach(builder::withInput);
+			generator.getOutputs().forEach(builder::withOutput);
+			return builder.build();
+		});
+		paths.put("NEW VERSION", () -> copyArtifact(generator).withVersion(generator.version().increment()).build());
+		paths.put("UPDATED DEPENDENCY", () -> copyArtifact(generator).updateDependency(platform.increment()).build());
+		for (int size : sizes) {
+			for (Map.Entry<String, Supplier<Artifact>> entry : paths.entrySet()) {
+				long hash = 0;
+				long allocated = allocatedBytes();
+				long start = System.nanoTime();
+				for (int i = 0; i < size; i++) {
+					hash += entry.getValue().get().hashCode();
+				}
+				long nanos = System.nanoTime() - start;
+				allocated = allocatedBytes() - allocated;
+				report(String.format("%s copies, %s: %s bytes and %s ns per copy, checksum %s", size, entry.getKey(),
+					allocated / size, nanos / size, hash));
+			}
+		}
+	}
+	
+	public static void benchmarkDispatchModes(int[] sizes) {
+		if (sizes.length == 0) {
+			sizes = new int[] { 1_000, 10_000 };
+		}
+		Repository example = repo;
+		try {
+			for (int size : sizes) {
+				for (Map.Entry<Integer, Example> entry : examples.entrySet()) {
+					for (DispatchMode mode : DispatchMode.values()) {
+						TransformationMetrics metrics = new TransformationMetrics();
+						repo = new RepositoryImpl(IndexMode.INDEXED, PropagationEngine.topological().withMetrics(metrics))
+							.withDispatchMode(mode);
+						entry.getValue().runnable().run();
+						long before = applications(metrics);
+						ArtifactVersion metamodel = repo.latest(microservice.version().name()).orElseThrow();
+						long start = System.nanoTime();
+						for (int i = 0; i < size; i++) {
+							repo.commit(buildArtifact("service" + i).withMetamodel(metamodel).build());
+						}
+						long millis = (System.nanoTime() - start) / 1_000_000;
+						report(String.format("%s models after example %s, %s: %s ms, %s applications for the example, %s for the models",
+							size, entry.getKey(), mode, millis, before, applications(metrics) - before));
+					}
+				}
+			}
+		} finally {
+			repo = example;
+		}
+	}
+	
+	private static long applications(TransformationMetrics metrics) {
+		return metrics.getSnapshot().values().stream().mapToLong(TransformationStatistics::applications).sum();
+	}
+	
+	public static void benchmarkEventConsumers(int[] sizes) {
+		if (sizes.length == 0) {
+			sizes = new int[] { 10, 100 };
+		}
+		Map<String, Supplier<EventConsumer>> consumers = new LinkedHashMap<>();
+		consumers.put("none", () -> EventConsumer.NONE);
+		consumers.put("text", () -> new TextEventConsumer(OutputStream.nullOutputStream()));
+		consumers.put("JSON lines", () -> new JsonEventConsumer(OutputStream.nullOutputStream()));
+		EventStream stream = events;
+		try {
+			for (int size : sizes) {
+				List<Artifact> ecosystem = generateEcosystem().withMetamodels(size).generate();
+				for (Map.Entry<String, Supplier<EventConsumer>> entry : consumers.entrySet()) {
+					events = new EventStream(entry.getValue().get(), 1 << 14);
+					long start = System.nanoTime();
+					ecosystem.forEach(new RepositoryImpl()::commit);
+					long committed = System.nanoTime();
+					events.close();
+					long closed = System.nanoTime();
+					report(String.format("%s meta models, %s: %s ms, %s ms until all events have been consumed",
+						size, entry.getKey(), (committed - start) / 1_000_000, (closed - start) / 1_000_000));
+				}
+			}
+		} finally {
+			events = stream;
+		}
+	}
+	
+	private static void reportRunaway(String label, Runnable commit) {
+		long start = System.nanoTime();
+		try {
+			commit.run();
+			report(String.format("%s: not detected", label));
+		} catch (PropagationException e) {
+			report(String.format("%s: chain of %s applications detected in %s ms, %s", label, e.getChain().size(),
+				(System.nanoTime() - start) / 1_000_000, e.getMessage().substring(0, Math.min(160, e.getMessage().length()))));
+		}
+	}
+	
+	private static void deleteQuietly(Path path) {
+		if (path == null) {
+			return;
+		}
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			report("Can't delete " + path);
+		}
+	}
+	
+	// 0 if the JVM can't tell
+	private static long allocatedBytes() {
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads) {
+			return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+	
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+	
+	private static void assertVersions(Repository repo, String name, int expected) {
+		for (int version = 0; version < expected; version++) {
+			if (repo.get(new ArtifactVersion(name, version)) == null) {
+				throw new IllegalStateException(String.format("Missing version %s of %s", version, name));
+			}
+		}
+		if (repo.get(new ArtifactVersion(name, expected)) != null) {
+			throw new IllegalStateException(String.format("Unexpected version %s of %s", expected, name));
+		}
+	}
+	
+	// each pair of transformation and input is only applied once, by whichever of both was committed later
+	public static List<Application> onChange(RepositoryView repo, ArtifactVersion version) {
+		List<Application> applications = new ArrayList<>();
+		Artifact artifact = repo.get(version);
+		for (ArtifactVersion metamodel : repo.getMetamodels(version)) {
+			for (Transformation transformation : repo.getAcceptingTransformations(metamodel)) {
+				applications.add(new Application(transformation, artifact));
+			}
+		}
+		for (ArtifactVersion metamodel : repo.getInputs(version)) {
+			for (Artifact model : repo.getInstances(metamodel)) {
+				artifact.asTransformation().ifPresent(t -> applications.add(new Application(t, model)));
+			}
+		}
+		return applications;
+	}
+	
+	// the format is applied to the version and the detail of an event
+	public enum EventType {
+		
+		MESSAGE("%2$s"),
+		COMMIT("[COMMIT] %2$s"),
+		TRANSFORM_START(null),
+		TRANSFORM_END(null),
+		GENERATE("[M2T] Generating %2$s for model %1$s"),
+		MIGRATE("[M2M] Migrating %2$s %1$s"),
+		CO_EVOLUTION("[CoEv] %2$s %1$s"),
+		BUILD("[BUILD] Unit testing and building %1$s"),
+		DEPLOY("[DEPLOY] Integration testing and deploying %1$s"),
+		IMPACT("[IMPACT] Changing %1$s affects %2$s");
+		
+		private final String format;
+		
+		private EventType(String format) {
+			this.format = format;
+		}
+		
+		// null if events of this type aren't printed
+		public String getFormat() {
+			return format;
+		}
+		
+	}
+	
+	// the detail is only formatted by the consumer
+	public record Event(EventType type, long nanoTime, ArtifactVersion version, Object detail) {}
+	
+	public interface EventConsumer {
+		
+		EventConsumer NONE = new EventConsumer() {
+			
+			@Override
+			public boolean accepts(EventType type) {
+				return false;
+			}
+			
+			@Override
+			public void accept(Event event) {
+			}
+			
+		};
+		
+		boolean accepts(EventType type);
+		
+		void accept(Event event);
+		
+		// called after each batch of events
+		default void flush() {
+		}
+		
+	}
+	
+	public static class TextEventConsumer implements EventConsumer {
+		
+		private final PrintWriter out;
+		
+		public TextEventConsumer(OutputStream out) {
+			this.out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16));
+		}
+		
+		@Override
+		public boolean accepts(EventType type) {
+			return type.getFormat() != null;
+		}
+		
+		@Override
+		public void accept(Event event) {
+			out.println(String.format(event.type().getFormat(), event.version(), event.detail()));
+		}
+		
+		@Override
+		public void flush() {
+			out.flush();
+		}
+		
+	}
+	
+	public static class JsonEventConsumer implements EventConsumer {
+		
+		private final PrintWriter out;
+		
+		private final StringBuilder line = new StringBuilder();
+		
+		public JsonEventConsumer(OutputStream out) {
+			this.out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16));
+		}
+		
+		@Override
+		public boolean accepts(EventType type) {
+			return true;
+		}
+		
+		@Override
+		public void accept(Event event) {
+			line.setLength(0);
+			line.append("{\"type\":\"").append(event.type()).append("\",\"nanoTime\":").append(event.nanoTime());
+			if (event.version() != null) {
+				line.append(",\"name\":");
+				appendString(event.version().name());
+				line.append(",\"version\":").append(event.version().version());
+			}
+			if (event.detail() instanceof ArtifactVersion input) {
+				line.append(",\"inputName\":");
+				appendString(input.name());
+				line.append(",\"inputVersion\":").append(input.version());
+			} else if (event.detail() != null && !(event.detail() instanceof Artifact)) {
+				line.append(",\"detail\":");
+				appendString(event.detail().toString());
+			}
+			out.println(line.append('}'));
+		}
+		
+		private void appendString(String value) {
+			line.append('"');
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				if (c == '"' || c == '\\') {
+					line.append('\\').append(c);
+				} else if (c < 0x20) {
+					line.append(String.format("\\u%04x", (int) c));
+				} else {
+					line.append(c);
+				}
+			}
+			line.append('"');
+		}
+		
+		@Override
+		public void flush() {
+			out.flush();
+		}
+		
+	}
+	
+	// hands events to a consumer thread through a bounded ring buffer, publishers block while it is full
+	public static class EventStream implements Closeable {
+		
+		// marks the end of the stream
+		private static final Event CLOSED = new Event(EventType.MESSAGE, 0, null, null);
+		
+		private final EventConsumer consumer;
+		
+		private final ArrayBlockingQueue<Event> buffer;
+		
+		private final Thread thread;
+		
+		private final AtomicLong published = new AtomicLong();
+		
+		private final AtomicLong failures = new AtomicLong();
+		
+		// guarded by this
+		private long consumed = 0;
+		
+		private volatile boolean closed = false;
+		
+		public EventStream(EventConsumer consumer, int capacity) {
+			this.consumer = consumer;
+			this.buffer = new ArrayBlockingQueue<>(capacity);
+			this.thread = new Thread(this::consume, "events");
+			thread.setDaemon(true);
+			// a stream that doesn't accept any events doesn't need a thread
+			if (Arrays.stream(EventType.values()).anyMatch(consumer::accepts)) {
+				thread.start();
+			}
+		}
+		
+		public boolean isEnabled(EventType type) {
+			return consumer.accepts(type);
+		}
+		
+		public void publish(Event event) {
+			if (closed) {
+				throw new IllegalStateException("The event stream has been closed");
+			}
+			try {
+				put(event);
+				published.incrementAndGet();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while publishing " + event.type(), e);
+			}
+		}
+		
+		// events a consumer has failed on are skipped
+		public long getFailures() {
+			return failures.get();
+		}
+		
+		private void put(Event event) throws InterruptedException {
+			// fail instead of blocking forever once nothing drains the buffer anymore
+			while (!buffer.offer(event, 100, TimeUnit.MILLISECONDS)) {
+				if (!thread.isAlive()) {
+					throw new IllegalStateException("The event consumer has stopped");
+				}
+			}
+		}
+		
+		public void flush() {
+			long target = published.get();
+			synchronized (this) {
+				while (consumed < target && thread.isAlive()) {
+					try {
+						wait(100);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+				}
+			}
+		}
+		
+		@Override
+		public void close() {
+			if (closed || !thread.isAlive()) {
+				closed = true;
+				return;
+			}
+			flush();
+			closed = true;
+			try {
+				put(CLOSED);
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		
+		private void consume() {
+			List<Event> batch = new ArrayList<>();
+			while (true) {
+				try {
+					batch.add(buffer.take());
+				} catch (InterruptedException e) {
+					return;
+				}
+				buffer.drainTo(batch);
+				for (Event event : batch) {
+					if (event == CLOSED) {
+						flushConsumer();
+						return;
+					}
+					try {
+						consumer.accept(event);
+					} catch (RuntimeException e) {
+						// a failing consumer must not stop the stream, which would block publishers
+						failures.incrementAndGet();
+					}
+				}
+				flushConsumer();
+				synchronized (this) {
+					consumed += batch.size();
+					notifyAll();
+				}
+				batch.clear();
+			}
+		}
+		
+		private void flushConsumer() {
+			try {
+				consumer.flush();
+			} catch (RuntimeException e) {
+				failures.incrementAndGet();
+			}
+		}
+		
+	}
+	
+	// counts the artifacts a change would generate per meta model they conform to without applying any transformation
+	public static Impact impact(RepositoryView repo, ArtifactVersion version) {
+		Artifact artifact = repo.get(version);
+		if (artifact == null) {
+			return new Impact(Collections.emptySet(), 0);
+		}
+		Set<ArtifactVersion> affected = new LinkedHashSet<>();
+		// meta model -> estimated number of generated artifacts conforming to it
+		Map<ArtifactVersion, Long> generated = new HashMap<>();
+		long applications = 0;
+		for (ArtifactVersion metamodel : artifact.getMetamodels()) {
+			for (Transformation transformation : repo.getAcceptingTransformations(metamodel)) {
+				applications++;
+				affected.add(transformation.version());
+				repo.getGeneratedMetamodels(transformation).forEach(output -> generated.merge(output, 1L, Long::sum));
+			}
+		}
+		if (artifact instanceof Transformation t) {
+			Set<ArtifactVersion> outputs = repo.getGeneratedMetamodels(t);
+			for (ArtifactVersion input : t.getInputs()) {
+				for (Artifact model : repo.getInstances(input)) {
+					applications++;
+					affected.add(model.version());
+					outputs.forEach(output -> generated.merge(output, 1L, Long::sum));
+				}
+			}
+		}
+		// the meta models reachable from the generated artifacts, with the transformations accepting them and their in-degrees
+		Map<ArtifactVersion, Set<Transformation>> accepting = new LinkedHashMap<>();
+		Map<ArtifactVersion, Integer> inDegrees = new HashMap<>();
+		Deque<ArtifactVersion> pending = new ArrayDeque<>(generated.keySet());
+		while (!pending.isEmpty()) {
+			ArtifactVersion metamodel = pending.poll();
+			if (accepting.containsKey(metamodel)) {
+				continue;
+			}
+			Set<Transformation> transformations = repo.getAcceptingTransformations(metamodel);
+			accepting.put(metamodel, transformations);
+			for (Transformation transformation : transformations) {
+				for (ArtifactVersion output : repo.getGeneratedMetamodels(transformation)) {
+					inDegrees.merge(output, 1, Integer::sum);
+					pending.add(output);
+				}
+			}
+		}
+		// visited in topological order, so the count of a meta model is complete before it is followed, and each one once
+		Set<ArtifactVersion> unvisited = new LinkedHashSet<>(accepting.keySet());
+		Deque<ArtifactVersion> ready = new ArrayDeque<>();
+		unvisited.stream().filter(metamodel -> !inDegrees.containsKey(metamodel)).forEach(ready::add);
+		while (!unvisited.isEmpty()) {
+			// meta models on a cycle are visited in the order of their discovery
+			ArtifactVersion metamodel = ready.isEmpty() ? unvisited.iterator().next() : ready.poll();
+			if (!unvisited.remove(metamodel)) {
+				continue;
+			}
+			long count = generated.getOrDefault(metamodel, 0L);
+			for (Transformation transformation : accepting.get(metamodel)) {
+				applications += count;
+				affected.add(transformation.version());
+				for (ArtifactVersion output : repo.getGeneratedMetamodels(transformation)) {
+					if (unvisited.contains(output)) {
+						generated.merge(output, count, Long::sum);
+						if (inDegrees.merge(output, -1, Integer::sum) == 0) {
+							ready.add(output);
+						}
+					}
+				}
+			}
+		}
+		return new Impact(affected, applications);
+	}
+	
+	public record Impact(Set<ArtifactVersion> affected, long applications) {}
+	
+	public record Application(Transformation transformation, Artifact input) {
+		
+		public Optional<Artifact> apply() {
+			return transformation.getTransformation().apply(input);
+		}
+		
+	}
+	
+	public static interface Artifact {
+		
+		ArtifactVersion version();
+		
+		Set<ArtifactVersion> getMetamodels();
+		
+		Set<ArtifactVersion> getInputs();
+		
+		Set<ArtifactVersion> getOutputs();
+		
+		Optional<Transformation> asTransformation();
+		
+	}
+	
+	public record ArtifactVersion(String name, int version) {
+		
+		public ArtifactVersion increment() {
+			return new ArtifactVersion(name, version + 1);
+		}
+		
+		public ArtifactVersion decrement() {
+			if (isInitialVersion()) {
+				throw new IllegalStateException("Can't create previous version for initial version");
+			}
+			return new ArtifactVersion(name, version - 1);
+		}
+		
+		public boolean isInitialVersion() {
+			return version == 0;
+		}
+		
+	}
+	
+	public static interface Transformation extends Artifact {
+		
+		Function<Artifact, Optional<Artifact>> getTransformation();
+		
+		// the results of deterministic transformations may be cached
+		boolean isDeterministic();
+		
+		// blocking transformations, e.g. builds or deployments, may be applied off the committing thread
+		boolean isBlocking();
+		
+		// present if the function has been created from a registry
+		Optional<TransformationReference> getReference();
+		
+	}
+	
+	public static interface CoEvolutionModel extends Artifact {
+		
+		ArtifactVersion getChangedArtifact();
+		
+	}
+	
+	// backed by a single array sorted by hash code instead of a hash table
+	public static final class VersionSet extends AbstractSet<ArtifactVersion> {
+		
+		private static final VersionSet EMPTY = new VersionSet(new ArtifactVersion[0]);
+		
+		private static final int LINEAR_PROBE_LIMIT = 8;
+		
+		private static final Comparator<ArtifactVersion> ORDER = Comparator.comparingInt(ArtifactVersion::hashCode)
+			.thenComparing(ArtifactVersion::name)
+			.thenComparingInt(ArtifactVersion::version);
+		
+		private final ArtifactVersion[] versions;
+		
+		private VersionSet(ArtifactVersion[] versions) {
+			this.versions = versions;
+		}
+		
+		public static VersionSet copyOf(Collection<ArtifactVersion> versions) {
+			if (versions instanceof VersionSet set) {
+				return set;
+			}
+			return versions.isEmpty() ? EMPTY : of(versions.toArray(ArtifactVersion[]::new));
+		}
+		
+		public VersionSet with(ArtifactVersion version) {
+			if (contains(version)) {
+				return this;
+			}
+			ArtifactVersion[] added = Arrays.copyOf(versions, versions.length + 1);
+			added[versions.length] = version;
+			return of(added);
+		}
+		
+		public VersionSet replace(ArtifactVersion previous, ArtifactVersion version) {
+			int index = Arrays.binarySearch(versions, previous, ORDER);
+			if (index < 0) {
+				return this;
+			}
+			ArtifactVersion[] replaced = versions.clone();
+			replaced[index] = version;
+			return of(replaced);
+		}
+		
+		// sorts the array in place and takes ownership of it
+		private static VersionSet of(ArtifactVersion[] versions) {
+			Arrays.sort(versions, ORDER);
+			int size = 0;
+			for (ArtifactVersion version : versions) {
+				if (size == 0 || !versions[size - 1].equals(Objects.requireNonNull(version))) {
+					versions[size++] = version;
+				}
+			}
+			return new VersionSet(size == versions.length ? versions : Arrays.copyOf(versions, size));
+		}
+		
+		@Override
+		public boolean contains(Object o) {
+			if (!(o instanceof ArtifactVersion version)) {
+				return false;
+			}
+			if (versions.length <= LINEAR_PROBE_LIMIT) {
+				int hash = version.hashCode();
+				for (ArtifactVersion v : versions) {
+					// versions of different names mostly differ in their hash codes already
+					if (v.hashCode() == hash && v.equals(version)) {
+						return true;
+					}
+				}
+				return false;
+			}
+			return Arrays.binarySearch(versions, version, ORDER) >= 0;
+		}
+		
+		@Override
+		public Iterator<ArtifactVersion> iterator() {
+			return Arrays.asList(versions).iterator();
+		}
+		
+		@Override
+		public int size() {
+			return versions.length;
+		}
+		
+	}
+	
+	public static class ArtifactImpl implements Artifact {
+
+		private final ArtifactVersion version;
+		private final Set<ArtifactVersion> metamodels;
+		private final Set<ArtifactVersion> inputs;
+		private final Set<ArtifactVersion> outputs;
+		
+		// artifacts are equal by version, cached since artifacts are mostly used as elements of hash sets
+		private final int hash;
+		
+		public ArtifactImpl(ArtifactVersion version, Set<ArtifactVersion> metamodels, Set<ArtifactVersion> inputs, Set<ArtifactVersion> outputs) {
+			this.version = version;
+			this.metamodels = VersionSet.copyOf(metamodels);
+			this.inputs = VersionSet.copyOf(inputs);
+			this.outputs = VersionSet.copyOf(outputs);
+			this.hash = Objects.hashCode(version);
+		}
+		
+		@Override
+		public ArtifactVersion version() {
+			return version;
+		}
+		
+		@Override
+		public Set<ArtifactVersion> getMetamodels() {
+			return metamodels;
+		}
+
+		@Override
+		public Set<ArtifactVersion> getInputs() {
+			return inputs;
+		}
+		
+		@Override
+		public Set<ArtifactVersion> getOutputs() {
+			return outputs;
+		}
+		
+		@Override
+		public Optional<Transformation> asTransformation() {
+			return Optional.ofNullable(this)
+				.filter(Transformation.class::isInstance)
+				.map(Transformation.class::cast);
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if (o == this) {
+				return true;
+			}
+			if (!(o instanceof Artifact)) {
+				return false;
+			}
+			Artifact other = (Artifact) o;
+			return Objects.equals(version, other.version());
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public String toString() {
+			if (debug) {
+				return String.format("%s; metamodels=%s; inputs=%s; outputs=%s", version, metamodels, inputs, outputs);
+			}
+			return version.toString();
+		}
+		
+	}
+	
+	public static class TransformationImpl extends ArtifactImpl implements Transformation {
+		
+		private final Function<Artifact, Optional<Artifact>> transformation;
+		
+		private final boolean deterministic;
+		
+		private final TransformationReference reference;
+		
+		private final boolean blocking;
+		
+		// created by a TransformationBuilder
+		public TransformationImpl(ArtifactVersion version, Set<ArtifactVersion> metamodels, Set<ArtifactVersion> inputs, Set<ArtifactVersion> outputs, Function<Artifact, Optional<Artifact>> transformation, boolean deterministic, TransformationReference reference, boolean blocking) {
+			super(version, metamodels, inputs, outputs);
+			this.transformation = transformation;
+			this.deterministic = deterministic;
+			this.reference = reference;
+			this.blocking = blocking;
+		}
+
+		@Override
+		public Function<Artifact, Optional<Artifact>> getTransformation() {
+			return transformation;
+		}
+		
+		@Override
+		public boolean isDeterministic() {
+			return deterministic;
+		}
+		
+		@Override
+		public Optional<TransformationReference> getReference() {
+			return Optional.ofNullable(reference);
+		}
+		
+		@Override
+		public boolean isBlocking() {
+			return blocking;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			return super.equals(obj);
+		}
+		
+		@Override
+		public int hashCode() {
+			return super.hashCode();
+		}
+		
+	}
+	
+	public static class CoEvolutionModelImpl extends ArtifactImpl implements CoEvolutionModel {
+		
+		private final ArtifactVersion changedArtifact;
+		
+		public CoEvolutionModelImpl(ArtifactVersion version, Set<ArtifactVersion> metamodels, Set<ArtifactVersion> inputs, Set<ArtifactVersion> outputs, ArtifactVersion changedArtifact) {
+			super(version, metamodels, inputs, outputs);
+			this.changedArtifact = changedArtifact;
+		}
+		
+		@Override
+		public ArtifactVersion getChangedArtifact() {
+			return changedArtifact;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			return super.equals(obj);
+		}
+		
+		@Override
+		public int hashCode() {
+			return super.hashCode();
+		}
+		
+		@Override
+		public String toString() {
+			if (debug) {
+				return String.format("%s; changedArtifact=%s", super.toString(), changedArtifact);
+			}
+			return super.toString();
+		}
+		
+	}
+	
+	// unlike the function itself, a reference can be stored
+	public record TransformationReference(String id, List<String> arguments) {
+		
+		public TransformationReference {
+			Objects.requireNonNull(id);
+			arguments = List.copyOf(arguments);
+		}
+		
+		public void write(DataOutputStream out) throws IOException {
+			out.writeUTF(id);
+			out.writeInt(arguments.size());
+			for (String argument : arguments) {
+				out.writeUTF(argument);
+			}
+		}
+		
+		public static TransformationReference read(DataInputStream in) throws IOException {
+			String id = in.readUTF();
+			List<String> arguments = new ArrayList<>();
+			for (int i = in.readInt(); i > 0; i--) {
+				arguments.add(in.readUTF());
+			}
+			return new TransformationReference(id, arguments);
+		}
+		
+	}
+	
+	public record RegisteredTransformation(TransformationReference reference, Function<Artifact, Optional<Artifact>> function) {}
+	
+	// factories of transformation functions by stable id
+	public static class TransformationRegistry {
+		
+		private final Map<String, Function<List<String>, Function<Artifact, Optional<Artifact>>>> factories = new ConcurrentHashMap<>();
+		
+		public TransformationRegistry registerFactory(String id, Function<List<String>, Function<Artifact, Optional<Artifact>>> factory) {
+			if (factories.putIfAbsent(id, factory) != null) {
+				throw new IllegalArgumentException("A transformation has already been registered for " + id);
+			}
+			return this;
+		}
+		
+		public RegisteredTransformation register(String id, Function<Artifact, Optional<Artifact>> function) {
+			registerFactory(id, arguments -> function);
+			return new RegisteredTransformation(new TransformationReference(id, List.of()), function);
+		}
+		
+		public RegisteredTransformation create(String id, String... arguments) {
+			TransformationReference reference = new TransformationReference(id, List.of(arguments));
+			return new RegisteredTransformation(reference, resolve(reference));
+		}
+		
+		public Function<Artifact, Optional<Artifact>> resolve(TransformationReference reference) {
+			Function<List<String>, Function<Artifact, Optional<Artifact>>> factory = factories.get(reference.id());
+			if (factory == null) {
+				throw new IllegalArgumentException("No transformation has been registered for " + reference.id());
+			}
+			return factory.apply(reference.arguments());
+		}
+		
+		// transformations not created from a registered function can't be applied once they have been read
+		Function<Artifact, Optional<Artifact>> resolve(ArtifactVersion version, TransformationReference reference) {
+			if (reference == null) {
+				return m -> {
+					throw new IllegalStateException("No transformation has been registered for " + version);
+				};
+			}
+			return resolve(reference);
+		}
+		
+	}
+	
+	// the queries of a repository, which is all a snapshot answers
+	public interface RepositoryView {
+
+		Artifact get(ArtifactVersion version);
+
+		Set<Artifact> getInstances(ArtifactVersion version);
+
+		Set<ArtifactVersion> getMetamodels(ArtifactVersion version);
+
+		Set<ArtifactVersion> getInputs(ArtifactVersion version);
+
+		Set<Transformation> getAcceptingTransformations(ArtifactVersion version);
+		
+		Optional<ArtifactVersion> latest(String name);
+		
+		int getLevel(ArtifactVersion version);
+		
+		Impact impact(ArtifactVersion version);
+		
+		// the meta models the outputs of the transformation have been committed with, its declared outputs until it has produced any
+		Set<ArtifactVersion> getGeneratedMetamodels(Transformation transformation);
+		
+	}
+	
+	public interface Repository extends RepositoryView {
+
+		void commit(Artifact a);
+		
+		// commits the output of an application, which is recorded as generated by its transformation
+		void commit(Application application, Artifact output);
+
+		void commit(Artifact... a);
+		
+		// waits for the outputs of all dispatched blocking transformations and their cascades
+		void awaitQuiescence();
+
+	}
+	
+	// the requested version if it is newer than the latest one, otherwise the version following it
+	private static ArtifactVersion nextVersion(ArtifactVersion latest, ArtifactVersion requested) {
+		return latest.version() < requested.version() ? requested : latest.increment();
+	}
+	
+	public enum IndexMode {
+		
+		// every query scans all artifacts
+		SCAN,
+		
+		// indexes are maintained on every commit
+		INDEXED,
+		
+		// maps are keyed by packed version keys
+		INTERNED
+		
+	}
+	
+	public enum DispatchMode {
+		
+		ALL,
+		
+		// only the latest version of a transformation accepts instances of its input
+		LATEST_ONLY
+		
+	}
+	
+	// a version packs into a long of the name id and the version number
+	public static class VersionDictionary {
+		
+		public static final long MISSING = -1L;
+		
+		private final Map<String, Integer> idsByName = new HashMap<>();
+		
+		private final List<String> names = new ArrayList<>();
+		
+		public int intern(String name) {
+			Integer id = idsByName.get(name);
+			if (id == null) {
+				id = names.size();
+				names.add(name);
+				idsByName.put(name, id);
+			}
+			return id;
+		}
+		
+		public long intern(ArtifactVersion version) {
+			return pack(intern(version.name()), version.version());
+		}
+		
+		// MISSING if the name is unknown, without interning it
+		public long find(ArtifactVersion version) {
+			Integer id = idsByName.get(version.name());
+			return id == null ? MISSING : pack(id, version.version());
+		}
+		
+		public ArtifactVersion version(long key) {
+			return new ArtifactVersion(names.get((int) (key >>> 32)), (int) key);
+		}
+		
+		public int size() {
+			return names.size();
+		}
+		
+		public static long pack(int nameId, int version) {
+			return ((long) nameId << 32) | (version & 0xFFFFFFFFL);
+		}
+		
+	}
+	
+	// open addressing with primitive long keys
+	public static class LongMap<V> {
+		
+		private long[] keys = new long[16];
+		
+		private Object[] values = new Object[16];
+		
+		private int size = 0;
+		
+		@SuppressWarnings("unchecked")
+		public V get(long key) {
+			int mask = keys.length - 1;
+			for (int i = index(key, mask); values[i] != null; i = (i + 1) & mask) {
+				if (keys[i] == key) {
+					return (V) values[i];
+				}
+			}
+			return null;
+		}
+		
+		@SuppressWarnings("unchecked")
+		public V put(long key, V value) {
+			Objects.requireNonNull(value);
+			int mask = keys.length - 1;
+			int i = index(key, mask);
+			for (; values[i] != null; i = (i + 1) & mask) {
+				if (keys[i] == key) {
+					V previous = (V) values[i];
+					values[i] = value;
+					return previous;
+				}
+			}
+			keys[i] = key;
+			values[i] = value;
+			// keep the load factor below 0.75 so that probe sequences stay short
+			if (++size * 4 > keys.length * 3) {
+				resize();
+			}
+			return null;
+		}
+		
+		@SuppressWarnings("unchecked")
+		public V remove(long key) {
+			int mask = keys.length - 1;
+			for (int i = index(key, mask); values[i] != null; i = (i + 1) & mask) {
+				if (keys[i] == key) {
+					V previous = (V) values[i];
+					// shift the following entries of the probe sequence into the gap, so that lookups don't stop early
+					int gap = i;
+					for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+						int home = index(keys[j], mask);
+						if (((j - home) & mask) >= ((j - gap) & mask)) {
+							keys[gap] = keys[j];
+							values[gap] = values[j];
+							gap = j;
+						}
+					}
+					values[gap] = null;
+					size--;
+					return previous;
+				}
+			}
+			return null;
+		}
+		
+		public V computeIfAbsent(long key, LongFunction<V> mappingFunction) {
+			V value = get(key);
+			if (value == null) {
+				value = mappingFunction.apply(key);
+				put(key, value);
+			}
+			return value;
+		}
+		
+		public int size() {
+			return size;
+		}
+		
+		@SuppressWarnings("unchecked")
+		public List<V> values() {
+			List<V> result = new ArrayList<>(size);
+			for (Object value : values) {
+				if (value != null) {
+					result.add((V) value);
+				}
+			}
+			return result;
+		}
+		
+		private void resize() {
+			long[] oldKeys = keys;
+			Object[] oldValues = values;
+			keys = new long[oldKeys.length * 2];
+			values = new Object[oldValues.length * 2];
+			int mask = keys.length - 1;
+			for (int j = 0; j < oldKeys.length; j++) {
+				if (oldValues[j] != null) {
+					int i = index(oldKeys[j], mask);
+					while (values[i] != null) {
+						i = (i + 1) & mask;
+					}
+					keys[i] = oldKeys[j];
+					values[i] = oldValues[j];
+				}
+			}
+		}
+		
+		private static int index(long key, int mask) {
+			long hash = key * 0x9E3779B97F4A7C15L;
+			return (int) (hash ^ (hash >>> 32)) & mask;
+		}
+		
+	}
+	
+	public interface VersionMap<V> {
+		
+		V get(ArtifactVersion version);
+		
+		void put(ArtifactVersion version, V value);
+		
+		V computeIfAbsent(ArtifactVersion version, Supplier<V> supplier);
+		
+		V remove(ArtifactVersion version);
+		
+		Collection<V> values();
+		
+		default V getOrDefault(ArtifactVersion version, V defaultValue) {
+			return Optional.ofNullable(get(version)).orElse(defaultValue);
+		}
+		
+	}
+	
+	public static class HashVersionMap<V> implements VersionMap<V> {
+		
+		private final Map<ArtifactVersion, V> map = new HashMap<>();
+		
+		@Override
+		public V get(ArtifactVersion version) {
+			return map.get(version);
+		}
+		
+		@Override
+		public void put(ArtifactVersion version, V value) {
+			map.put(version, value);
+		}
+		
+		@Override
+		public V computeIfAbsent(ArtifactVersion version, Supplier<V> supplier) {
+			return map.computeIfAbsent(version, k -> supplier.get());
+		}
+		
+		@Override
+		public V remove(ArtifactVersion version) {
+			return map.remove(version);
+		}
+		
+		@Override
+		public Collection<V> values() {
+			return map.values();
+		}
+		
+	}
+	
+	public static class InternedVersionMap<V> implements VersionMap<V> {
+		
+		private final VersionDictionary dictionary;
+		
+		private final LongMap<V> map = new LongMap<>();
+		
+		public InternedVersionMap(VersionDictionary dictionary) {
+			this.dictionary = dictionary;
+		}
+		
+		@Override
+		public V get(ArtifactVersion version) {
+			long key = dictionary.find(version);
+			return key == VersionDictionary.MISSING ? null : map.get(key);
+		}
+		
+		@Override
+		public void put(ArtifactVersion version, V value) {
+			map.put(dictionary.intern(version), value);
+		}
+		
+		@Override
+		public V computeIfAbsent(ArtifactVersion version, Supplier<V> supplier) {
+			return map.computeIfAbsent(dictionary.intern(version), k -> supplier.get());
+		}
+		
+		@Override
+		public V remove(ArtifactVersion version) {
+			long key = dictionary.find(version);
+			return key == VersionDictionary.MISSING ? null : map.remove(key);
+		}
+		
+		@Override
+		public Collection<V> values() {
+			return map.values();
+		}
+		
+	}
+	
+	// older versions are retained as long as a retained artifact refers to them
+	public record RetentionPolicy(int keepVersions) {
+		
+		public static final RetentionPolicy KEEP_ALL = new RetentionPolicy(Integer.MAX_VALUE);
+		
+		public RetentionPolicy {
+			if (keepVersions < 1) {
+				throw new IllegalArgumentException("At least the latest version has to be kept");
+			}
+		}
+		
+		public boolean keepsAll() {
+			return keepVersions == Integer.MAX_VALUE;
+		}
+		
+		public boolean isLatest(ArtifactVersion version, ArtifactVersion latest) {
+			return latest.version() - version.version() < keepVersions;
+		}
+		
+	}
+	
+	public abstract static class AbstractRepository implements Repository {
+		
+		// transformation -> meta models of the outputs it has produced, shared by the threads committing outputs
+		private final Map<ArtifactVersion, Set<ArtifactVersion>> generatedMetamodels = new ConcurrentHashMap<>();
+		
+		@Override
+		public Set<ArtifactVersion> getMetamodels(ArtifactVersion version) {
+			return Optional.ofNullable(version)
+				.map(this::get)
+				.map(Artifact::getMetamodels)
+				.orElse(Collections.emptySet());
+		}
+		
+		@Override
+		public Set<ArtifactVersion> getInputs(ArtifactVersion version) {
+			return Optional.ofNullable(version)
+				.map(this::get)
+				.map(Artifact::getInputs)
+				.orElse(Collections.emptySet());
+		}
+		
+		@Override
+		public Impact impact(ArtifactVersion version) {
+			return Main.impact(this, version);
+		}
+		
+		@Override
+		public Set<ArtifactVersion> getGeneratedMetamodels(Transformation transformation) {
+			return generatedMetamodels.getOrDefault(transformation.version(), transformation.getOutputs());
+		}
+		
+		@Override
+		public void commit(Artifact a) {
+			propagate(List.of(insert(a)), Collections.emptySet());
+		}
+		
+		@Override
+		public void commit(Application application, Artifact output) {
+			recordGeneratedMetamodels(application.transformation().version(), output.getMetamodels());
+			commit(output);
+		}
+		
+		// only the newest version of each artifact in the batch is propagated
+		@Override
+		public void commit(Artifact... a) {
+			Map<String, ArtifactVersion> newest = new LinkedHashMap<>();
+			Set<ArtifactVersion> superseded = new HashSet<>();
+			for (Artifact artifact : a) {
+				ArtifactVersion version = insert(artifact);
+				Optional.ofNullable(newest.put(version.name(), version)).ifPresent(superseded::add);
+			}
+			propagate(newest.values(), superseded);
+		}
+		
+		// allocates the version of a committed artifact and stores it
+		protected abstract ArtifactVersion insert(Artifact a);
+		
+		protected abstract void propagate(Collection<ArtifactVersion> versions, Set<ArtifactVersion> superseded);
+		
+		protected void recordGeneratedMetamodels(ArtifactVersion transformation, Set<ArtifactVersion> metamodels) {
+			generatedMetamodels.computeIfAbsent(transformation, t -> ConcurrentHashMap.newKeySet()).addAll(metamodels);
+		}
+		
+		protected void forgetGeneratedMetamodels(ArtifactVersion transformation) {
+			generatedMetamodels.remove(transformation);
+		}
+		
+	}
+	
+	public static class RepositoryImpl extends AbstractRepository {
+		
+		private final IndexMode indexMode;
+		
+		private final VersionMap<Artifact> artifactsByVersion;
+		
+		// name -> latest version, used to allocate the next version in constant time
+		private Map<String, ArtifactVersion> latestVersions = new HashMap<>();
+		
+		// meta model -> instances, not maintained in scan mode
+		private final VersionMap<Set<Artifact>> instancesByMetamodel;
+		
+		// input -> transformations accepting it, not maintained in scan mode
+		private final VersionMap<Set<Transformation>> transformationsByInput;
+		
+		private final DependencyGraph dependencyGraph = new DependencyGraph();
+		
+		private final PropagationEngine propagationEngine;
+		
+		private CommitLog commitLog;
+		
+		private RetentionPolicy retentionPolicy = RetentionPolicy.KEEP_ALL;
+		
+		private DispatchMode dispatchMode = DispatchMode.ALL;
+		
+		private record Head(String transformation, ArtifactVersion input) {}
+		
+		// transformation name and input -> latest version of the transformation accepting the input
+		private final Map<Head, ArtifactVersion> heads = new HashMap<>();
+		
+		// version -> number of references by retained artifacts, only maintained with a retention policy
+		private final Map<ArtifactVersion, Integer> references = new HashMap<>();
+		
+		private long collected = 0;
+		
+		// serializes commits, since outputs of blocking transformations are committed from other threads
+		private final ReentrantLock lock = new ReentrantLock();
+		
+		public RepositoryImpl() {
+			this(IndexMode.INDEXED);
+		}
+		
+		public RepositoryImpl(IndexMode indexMode) {
+			this(indexMode, PropagationEngine.topological());
+		}
+		
+		public RepositoryImpl(IndexMode indexMode, PropagationEngine propagationEngine) {
+			this.indexMode = indexMode;
+			this.propagationEngine = propagationEngine;
+			if (indexMode == IndexMode.INTERNED) {
+				VersionDictionary dictionary = new VersionDictionary();
+				artifactsByVersion = new InternedVersionMap<>(dictionary);
+				instancesByMetamodel = new InternedVersionMap<>(dictionary);
+				transformationsByInput = new InternedVersionMap<>(dictionary);
+			} else {
+				artifactsByVersion = new HashVersionMap<>();
+				instancesByMetamodel = new HashVersionMap<>();
+				transformationsByInput = new HashVersionMap<>();
+			}
+		}
+		
+		public PropagationEngine getPropagationEngine() {
+			return propagationEngine;
+		}
+		
+		public RepositoryImpl withCommitLog(CommitLog commitLog) {
+			this.commitLog = commitLog;
+			return this;
+		}
+		
+		// versions are collected when they drop out of the latest versions or lose their last reference
+		public RepositoryImpl withRetentionPolicy(RetentionPolicy retentionPolicy) {
+			if (this.retentionPolicy.keepsAll()) {
+				artifactsByVersion.values().forEach(this::reference);
+			}
+			this.retentionPolicy = retentionPolicy;
+			if (retentionPolicy.keepsAll()) {
+				references.clear();
+			} else {
+				new ArrayList<>(artifactsByVersion.values()).forEach(artifact -> collect(artifact.version()));
+			}
+			return this;
+		}
+		
+		// superseded transformations stop firing for new artifacts
+		public RepositoryImpl withDispatchMode(DispatchMode dispatchMode) {
+			this.dispatchMode = dispatchMode;
+			return this;
+		}
+		
+		public long getCollected() {
+			return locked(() -> collected);
+		}
+		
+		// restores the logged versions without propagating or logging them again
+		public long recover(Path path, TransformationRegistry registry) throws IOException {
+			return CommitLog.read(path, registry, artifact -> {
+				latestVersions.merge(artifact.version().name(), artifact.version(), Main::nextVersion);
+				store(artifact);
+			});
+		}
+		
+		// restores the artifacts of a snapshot, so committing can be resumed without applying any transformation again
+		public long recover(RepositorySnapshot snapshot) {
+			for (Artifact artifact : snapshot.getArtifacts()) {
+				latestVersions.merge(artifact.version().name(), artifact.version(), Main::nextVersion);
+				store(artifact);
+				if (artifact instanceof Transformation t) {
+					recordGeneratedMetamodels(t.version(), snapshot.getGeneratedMetamodels(t));
+				}
+			}
+			return snapshot.size();
+		}
+		
+		public Collection<Artifact> getArtifacts() {
+			// a copy since outputs of blocking transformations may be committed while iterating
+			return locked(() -> List.copyOf(artifactsByVersion.values()));
+		}
+		
+		@Override
+		public Artifact get(ArtifactVersion version) {
+			return locked(() -> artifactsByVersion.get(version));
+		}
+		
+		@Override
+		public Set<Artifact> getInstances(ArtifactVersion version) {
+			return locked(() -> {
+				if (indexMode != IndexMode.SCAN) {
+					// return a copy since callers commit new instances while iterating
+					return new HashSet<>(instancesByMetamodel.getOrDefault(version, Collections.emptySet()));
+				}
+				return artifactsByVersion.values().stream()
+					// find any model that has declared the argument as meta model
+					.filter(m1 -> m1.getMetamodels().contains(version))
+					.collect(Collectors.toSet());
+			});
+		}
+		
+		@Override
+		public Set<Transformation> getAcceptingTransformations(ArtifactVersion version) {
+			return locked(() -> accepting(version));
+		}
+		
+		private Set<Transformation> accepting(ArtifactVersion version) {
+			if (indexMode != IndexMode.SCAN) {
+				// return a copy since callers commit new transformations while iterating
+				Set<Transformation> transformations = new HashSet<>(transformationsByInput.getOrDefault(version, Collections.emptySet()));
+				if (dispatchMode == DispatchMode.LATEST_ONLY) {
+					transformations.removeIf(t -> !isHead(t, version));
+				}
+				return transformations;
+			}
+			return artifactsByVersion.values().stream().map(Artifact::asTransformation)
+				// find any transformation that has declared the argument as an input
+				.filter(Optional::isPresent)
+				.map(Optional::get)
+				.filter(t -> t.getInputs().contains(version))
+				.filter(t -> dispatchMode == DispatchMode.ALL || isHead(t, version))
+				.collect(Collectors.toSet());
+		}
+		
+		private boolean isHead(Transformation transformation, ArtifactVersion input) {
+			return transformation.version().equals(heads.get(new Head(transformation.version().name(), input)));
+		}
+		
+		@Override
+		public Optional<ArtifactVersion> latest(String name) {
+			return locked(() -> Optional.ofNullable(latestVersions.get(name)));
+		}
+		
+		@Override
+		public int getLevel(ArtifactVersion version) {
+			return locked(() -> {
+				Artifact artifact = artifactsByVersion.get(version);
+				return artifact == null ? dependencyGraph.getLevel(version) : dependencyGraph.getLevel(artifact);
+			});
+		}
+		
+		@Override
+		public Impact impact(ArtifactVersion version) {
+			return locked(() -> super.impact(version));
+		}
+		
+		// not guarded, must not be used while blocking transformations are pending
+		public DependencyGraph getDependencyGraph() {
+			return dependencyGraph;
+		}
+		
+		// queries take the commit lock as well, since blocking transformations commit from other threads
+		private <T> T locked(Supplier<T> query) {
+			lock.lock();
+			try {
+				return query.get();
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		@Override
+		public void commit(Artifact a) {
+			lock.lock();
+			try {
+				super.commit(a);
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		@Override
+		public void commit(Artifact... a) {
+			lock.lock();
+			try {
+				super.commit(a);
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		@Override
+		protected void propagate(Collection<ArtifactVersion> versions, Set<ArtifactVersion> superseded) {
+			propagationEngine.propagate(this, versions, superseded);
+		}
+		
+		@Override
+		public void awaitQuiescence() {
+			propagationEngine.awaitQuiescence();
+		}
+		
+		@Override
+		protected ArtifactVersion insert(Artifact a) {
+			ArtifactVersion previous = latestVersions.get(a.version().name());
+			ArtifactVersion version = latestVersions.merge(a.version().name(), a.version(), Main::nextVersion);
+			Artifact newVersion = copyArtifact(a).withVersion(version).build();
+			store(newVersion);
+			if (commitLog != null) {
+				commitLog.append(newVersion);
+			}
+			emit(EventType.COMMIT, version, newVersion);
+			if (!retentionPolicy.keepsAll() && previous != null) {
+				// the versions that are no longer among the latest ones
+				for (int v = Math.max(0, previous.version() - retentionPolicy.keepVersions() + 1); v <= version.version() - retentionPolicy.keepVersions(); v++) {
+					collect(new ArtifactVersion(version.name(), v));
+				}
+			}
+			return version;
+		}
+		
+		private void store(Artifact artifact) {
+			artifactsByVersion.put(artifact.version(), artifact);
+			if (!retentionPolicy.keepsAll()) {
+				reference(artifact);
+			}
+			dependencyGraph.add(artifact, artifactsByVersion::get);
+			if (artifact instanceof Transformation t) {
+				for (ArtifactVersion input : t.getInputs()) {
+					heads.merge(new Head(t.version().name(), input), t.version(), (a, b) -> a.version() < b.version() ? b : a);
+				}
+			}
+			if (indexMode != IndexMode.SCAN) {
+				for (ArtifactVersion metamodel : artifact.getMetamodels()) {
+					instancesByMetamodel.computeIfAbsent(metamodel, HashSet::new).add(artifact);
+				}
+				if (artifact instanceof Transformation t) {
+					for (ArtifactVersion input : t.getInputs()) {
+						transformationsByInput.computeIfAbsent(input, HashSet::new).add(t);
+					}
+				}
+			}
+		}
+		
+		private void reference(Artifact artifact) {
+			for (ArtifactVersion version : references(artifact)) {
+				references.merge(version, 1, Integer::sum);
+			}
+		}
+		
+		private static List<ArtifactVersion> references(Artifact artifact) {
+			List<ArtifactVersion> versions = new ArrayList<>(artifact.getMetamodels());
+			versions.addAll(artifact.getInputs());
+			versions.addAll(artifact.getOutputs());
+			return versions;
+		}
+		
+		// cascades to the versions it has referred to
+		private void collect(ArtifactVersion candidate) {
+			Deque<ArtifactVersion> pending = new ArrayDeque<>(List.of(candidate));
+			while (!pending.isEmpty()) {
+				ArtifactVersion version = pending.pop();
+				Artifact artifact = artifactsByVersion.get(version);
+				if (artifact == null || references.containsKey(version)
+					|| retentionPolicy.isLatest(version, latestVersions.get(version.name()))) {
+					continue;
+				}
+				artifactsByVersion.remove(version);
+				if (indexMode != IndexMode.SCAN) {
+					for (ArtifactVersion metamodel : artifact.getMetamodels()) {
+						removeFromIndex(instancesByMetamodel, metamodel, artifact);
+					}
+					if (artifact instanceof Transformation t) {
+						for (ArtifactVersion input : t.getInputs()) {
+							removeFromIndex(transformationsByInput, input, t);
+						}
+					}
+				}
+				dependencyGraph.remove(artifact);
+				if (artifact instanceof Transformation t) {
+					for (ArtifactVersion input : t.getInputs()) {
+						heads.remove(new Head(t.version().name(), input), t.version());
+					}
+					forgetGeneratedMetamodels(t.version());
+				}
+				collected++;
+				for (ArtifactVersion reference : references(artifact)) {
+					if (references.compute(reference, (v, count) -> count == 1 ? null : count - 1) == null) {
+						pending.push(reference);
+					}
+				}
+			}
+		}
+		
+		private static <T extends Artifact> void removeFromIndex(VersionMap<Set<T>> index, ArtifactVersion key, T artifact) {
+			Set<T> artifacts = index.get(key);
+			if (artifacts != null && artifacts.remove(artifact) && artifacts.isEmpty()) {
+				index.remove(key);
+			}
+		}
+		
+	}
+	
+	// versions are allocated by atomically advancing the latest version of the name
+	public static class ConcurrentRepositoryImpl extends AbstractRepository {
+		
+		private final Map<String, ArtifactVersion> latestVersions = new ConcurrentHashMap<>();
+		
+		private final Map<ArtifactVersion, Artifact> artifactsByVersion = new ConcurrentHashMap<>();
+		
+		private final Map<ArtifactVersion, Set<Artifact>> instancesByMetamodel = new ConcurrentHashMap<>();
+		
+		private final Map<ArtifactVersion, Set<Transformation>> transformationsByInput = new ConcurrentHashMap<>();
+		
+		// guarded by itself
+		private final DependencyGraph dependencyGraph = new DependencyGraph();
+		
+		private final ThreadLocal<PropagationEngine> propagationEngine;
+		
+		private volatile BlockingExecutor blockingExecutor;
+		
+		public ConcurrentRepositoryImpl() {
+			this(PropagationEngine::topological);
+		}
+		
+		public ConcurrentRepositoryImpl(Supplier<PropagationEngine> propagationEngine) {
+			this.propagationEngine = ThreadLocal.withInitial(propagationEngine);
+		}
+		
+		@Override
+		public Artifact get(ArtifactVersion version) {
+			return artifactsByVersion.get(version);
+		}
+		
+		@Override
+		public Set<Artifact> getInstances(ArtifactVersion version) {
+			return new HashSet<>(instancesByMetamodel.getOrDefault(version, Collections.emptySet()));
+		}
+		
+		@Override
+		public Set<Transformation> getAcceptingTransformations(ArtifactVersion version) {
+			return new HashSet<>(transformationsByInput.getOrDefault(version, Collections.emptySet()));
+		}
+		
+		// may not be retrievable yet while its commit is in progress
+		@Override
+		public Optional<ArtifactVersion> latest(String name) {
+			return Optional.ofNullable(latestVersions.get(name));
+		}
+		
+		@Override
+		public int getLevel(ArtifactVersion version) {
+			Artifact artifact = artifactsByVersion.get(version);
+			synchronized (dependencyGraph) {
+				return artifact == null ? dependencyGraph.getLevel(version) : dependencyGraph.getLevel(artifact);
+			}
+		}
+		
+		public ConcurrentRepositoryImpl withBlockingExecutor(BlockingExecutor blockingExecutor) {
+			this.blockingExecutor = blockingExecutor;
+			return this;
+		}
+		
+		private PropagationEngine engine() {
+			// engines are created per thread, including the threads of the blocking executor
+			return propagationEngine.get().withBlockingExecutor(blockingExecutor);
+		}
+		
+		@Override
+		protected void propagate(Collection<ArtifactVersion> versions, Set<ArtifactVersion> superseded) {
+			engine().propagate(this, versions, superseded);
+		}
+		
+		@Override
+		public void awaitQuiescence() {
+			BlockingExecutor executor = blockingExecutor;
+			if (executor != null) {
+				executor.awaitQuiescence();
+			}
+		}
+		
+		@Override
+		protected ArtifactVersion insert(Artifact a) {
+			// merge is atomic per name, concurrent commits of the same name move on to the next version
+			ArtifactVersion version = latestVersions.merge(a.version().name(), a.version(), Main::nextVersion);
+			Artifact newVersion = copyArtifact(a).withVersion(version).build();
+			for (ArtifactVersion metamodel : newVersion.getMetamodels()) {
+				instancesByMetamodel.computeIfAbsent(metamodel, k -> ConcurrentHashMap.newKeySet()).add(newVersion);
+			}
+			if (newVersion instanceof Transformation t) {
+				for (ArtifactVersion input : t.getInputs()) {
+					transformationsByInput.computeIfAbsent(input, k -> ConcurrentHashMap.newKeySet()).add(t);
+				}
+			}
+			synchronized (dependencyGraph) {
+				dependencyGraph.add(newVersion, artifactsByVersion::get);
+			}
+			// the artifact is published last so that it is fully indexed once it can be retrieved
+			artifactsByVersion.put(newVersion.version(), newVersion);
+			emit(EventType.COMMIT, version, newVersion);
+			return version;
+		}
+		
+	}
+	
+	// levels are higher than those of all dependencies and never lowered, edges closing a cycle are ignored
+	public static class DependencyGraph {
+		
+		private static class Node {
+			
+			private int level = 0;
+			
+			private final List<Node> dependents = new ArrayList<>(2);
+			
+		}
+		
+		private final Map<ArtifactVersion, Node> nodes = new HashMap<>();
+		
+		private long ignoredEdges = 0;
+		
+		// missing dependencies are added as well
+		public void add(Artifact artifact, Function<ArtifactVersion, Artifact> lookup) {
+			Node node = nodes.get(artifact.version());
+			if (node == null && artifact.asTransformation().isEmpty()) {
+				// nothing depends on a plain instance yet, but its meta models are dependencies now
+				artifact.getMetamodels().forEach(metamodel -> node(metamodel, lookup));
+				artifact.getInputs().forEach(input -> node(input, lookup));
+				return;
+			}
+			if (node == null) {
+				node = node(artifact.version(), lookup);
+			} else {
+				connect(artifact, node, lookup);
+			}
+			for (ArtifactVersion output : artifact.getOutputs()) {
+				addEdge(node, node(output, lookup));
+			}
+		}
+		
+		// levels of other nodes aren't lowered
+		public void remove(Artifact artifact) {
+			Node node = nodes.remove(artifact.version());
+			if (node == null) {
+				return;
+			}
+			for (ArtifactVersion metamodel : artifact.getMetamodels()) {
+				Optional.ofNullable(nodes.get(metamodel)).ifPresent(dependency -> dependency.dependents.remove(node));
+			}
+			for (ArtifactVersion input : artifact.getInputs()) {
+				Optional.ofNullable(nodes.get(input)).ifPresent(dependency -> dependency.dependents.remove(node));
+			}
+			node.dependents.clear();
+		}
+		
+		// plain instances aren't nodes, their level follows from their dependencies
+		public int getLevel(Artifact artifact) {
+			Node node = nodes.get(artifact.version());
+			if (node != null) {
+				return node.level;
+			}
+			int level = 0;
+			for (ArtifactVersion metamodel : artifact.getMetamodels()) {
+				level = Math.max(level, getLevel(metamodel) + 1);
+			}
+			for (ArtifactVersion input : artifact.getInputs()) {
+				level = Math.max(level, getLevel(input) + 1);
+			}
+			return level;
+		}
+		
+		public int getLevel(ArtifactVersion version) {
+			Node node = nodes.get(version);
+			return node == null ? 0 : node.level;
+		}
+		
+		public int size() {
+			return nodes.size();
+		}
+		
+		// edges left out since they would have closed a cycle
+		public long getIgnoredEdges() {
+			return ignoredEdges;
+		}
+		
+		private Node node(ArtifactVersion version, Function<ArtifactVersion, Artifact> lookup) {
+			Node node = nodes.get(version);
+			if (node == null) {
+				node = new Node();
+				nodes.put(version, node);
+				// the artifact may have been stored before anything depended on it
+				Artifact artifact = lookup.apply(version);
+				if (artifact != null) {
+					connect(artifact, node, lookup);
+				}
+			}
+			return node;
+		}
+		
+		private void connect(Artifact artifact, Node node, Function<ArtifactVersion, Artifact> lookup) {
+			for (ArtifactVersion metamodel : artifact.getMetamodels()) {
+				addEdge(node(metamodel, lookup), node);
+			}
+			for (ArtifactVersion input : artifact.getInputs()) {
+				addEdge(node(input, lookup), node);
+			}
+		}
+		
+		private void addEdge(Node dependency, Node dependent) {
+			if (dependency == dependent || reaches(dependent, dependency)) {
+				ignoredEdges++;
+				return;
+			}
+			dependency.dependents.add(dependent);
+			// raise the levels of the dependent and everything depending on it, which terminates since the graph is acyclic
+			Deque<Node> raised = new ArrayDeque<>();
+			if (dependent.level <= dependency.level) {
+				dependent.level = dependency.level + 1;
+				raised.push(dependent);
+			}
+			while (!raised.isEmpty()) {
+				Node next = raised.pop();
+				for (Node node : next.dependents) {
+					if (node.level <= next.level) {
+						node.level = next.level + 1;
+						raised.push(node);
+					}
+				}
+			}
+		}
+		
+		private boolean reaches(Node from, Node to) {
+			if (from.dependents.isEmpty()) {
+				return false;
+			}
+			Set<Node> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+			Deque<Node> pending = new ArrayDeque<>(List.of(from));
+			while (!pending.isEmpty()) {
+				Node next = pending.pop();
+				if (next == to) {
+					return true;
+				}
+				for (Node node : next.dependents) {
+					if (visited.add(node)) {
+						pending.push(node);
+					}
+				}
+			}
+			return false;
+		}
+		
+	}
+	
+	public record PropagationMetrics(long enqueued, long processed, int queueDepth, int maxQueueDepth) {}
+	
+	// length prefixed and checksummed records forced to disk in batches, a tail cut off by a crash is truncated on reopening
+	public static class CommitLog implements Closeable {
+		
+		private static final byte ARTIFACT = 0;
+		
+		private static final byte TRANSFORMATION = 1;
+		
+		private static final byte CO_EVOLUTION_MODEL = 2;
+		
+		private final FileChannel channel;
+		
+		private final DataOutputStream out;
+		
+		private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+		
+		private final CRC32 checksum = new CRC32();
+		
+		private final DataOutputStream recordOut = new DataOutputStream(new CheckedOutputStream(record, checksum));
+		
+		private final int syncInterval;
+		
+		private int unsynced = 0;
+		
+		private record Scan(long records, long length) {}
+		
+		public CommitLog(Path path, int syncInterval) throws IOException {
+			this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+			// appended records must follow the last complete one, not the remains of a torn record
+			channel.truncate(scan(path, null, null).length());
+			this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+			this.syncInterval = syncInterval;
+		}
+		
+		public void append(Artifact artifact) {
+			try {
+				record.reset();
+				checksum.reset();
+				write(recordOut, artifact);
+				out.writeInt(record.size());
+				out.writeInt((int) checksum.getValue());
+				record.writeTo(out);
+				if (++unsynced >= syncInterval) {
+					sync();
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException("Can't append " + artifact.version() + " to the commit log", e);
+			}
+		}
+		
+		public void sync() throws IOException {
+			out.flush();
+			channel.force(false);
+			unsynced = 0;
+		}
+		
+		@Override
+		public void close() throws IOException {
+			sync();
+			out.close();
+		}
+		
+		public static long read(Path path, TransformationRegistry registry, Consumer<Artifact> consumer) throws IOException {
+			return scan(path, registry, consumer).records();
+		}
+		
+		// reads the records up to the first one that is incomplete or doesn't match its checksum, parsing them only for a consumer
+		private static Scan scan(Path path, TransformationRegistry registry, Consumer<Artifact> consumer) throws IOException {
+			long count = 0;
+			long length = 0;
+			long size = Files.size(path);
+			CRC32 checksum = new CRC32();
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+				byte[] buffer = new byte[256];
+				while (true) {
+					int recordLength;
+					try {
+						recordLength = in.readInt();
+						int expected = in.readInt();
+						if (recordLength < 0 || recordLength > size - length - 8) {
+							return new Scan(count, length);
+						}
+						if (buffer.length < recordLength) {
+							buffer = new byte[Math.max(recordLength, buffer.length * 2)];
+						}
+						in.readFully(buffer, 0, recordLength);
+						checksum.reset();
+						checksum.update(buffer, 0, recordLength);
+						if ((int) checksum.getValue() != expected) {
+							return new Scan(count, length);
+						}
+					} catch (EOFException e) {
+						return new Scan(count, length);
+					}
+					if (consumer != null) {
+						consumer.accept(read(new DataInputStream(new ByteArrayInputStream(buffer, 0, recordLength)), registry));
+					}
+					count++;
+					length += 8 + recordLength;
+				}
+			}
+		}
+		
+		private static void write(DataOutputStream out, Artifact artifact) throws IOException {
+			if (artifact instanceof CoEvolutionModel) {
+				out.writeByte(CO_EVOLUTION_MODEL);
+			} else if (artifact instanceof Transformation) {
+				out.writeByte(TRANSFORMATION);
+			} else {
+				out.writeByte(ARTIFACT);
+			}
+			write(out, artifact.version());
+			write(out, artifact.getMetamodels());
+			write(out, artifact.getInputs());
+			write(out, artifact.getOutputs());
+			if (artifact instanceof CoEvolutionModel coevm) {
+				write(out, coevm.getChangedArtifact());
+			} else if (artifact instanceof Transformation t) {
+				out.writeBoolean(t.isDeterministic());
+				out.writeBoolean(t.isBlocking());
+				out.writeBoolean(t.getReference().isPresent());
+				if (t.getReference().isPresent()) {
+					t.getReference().get().write(out);
+				}
+			}
+		}
+		
+		private static void write(DataOutputStream out, ArtifactVersion version) throws IOException {
+			out.writeUTF(version.name());
+			out.writeInt(version.version());
+		}
+		
+		private static void write(DataOutputStream out, Set<ArtifactVersion> versions) throws IOException {
+			out.writeInt(versions.size());
+			for (ArtifactVersion version : versions) {
+				write(out, version);
+			}
+		}
+		
+		private static Artifact read(DataInputStream in, TransformationRegistry registry) throws IOException {
+			byte type = in.readByte();
+			ArtifactVersion version = readVersion(in);
+			AbstractArtifactBuilder<?, ?> builder;
+			if (type == CO_EVOLUTION_MODEL) {
+				builder = buildCoEvolutionModel(version);
+			} else if (type == TRANSFORMATION) {
+				builder = buildTransformation(version);
+			} else {
+				builder = buildArtifact(version);
+			}
+			for (int i = in.readInt(); i > 0; i--) {
+				builder.withMetamodel(readVersion(in));
+			}
+			for (int i = in.readInt(); i > 0; i--) {
+				builder.withInput(readVersion(in));
+			}
+			for (int i = in.readInt(); i > 0; i--) {
+				builder.withOutput(readVersion(in));
+			}
+			if (builder instanceof CoEvolutionModelBuiler coevm) {
+				coevm.withChangedArtifact(readVersion(in));
+			} else if (builder instanceof TransformationBuilder t) {
+				t.withDeterministic(in.readBoolean());
+				t.withBlocking(in.readBoolean());
+				TransformationReference reference = in.readBoolean() ? TransformationReference.read(in) : null;
+				t.withTransformation(registry.resolve(version, reference)).withReference(reference);
+			}
+			return builder.build();
+		}
+		
+		private static ArtifactVersion readVersion(DataInputStream in) throws IOException {
+			return new ArtifactVersion(in.readUTF(), in.readInt());
+		}
+		
+	}
+	
+	// queried in place from a memory mapped file without deserializing any artifact
+	public static class RepositorySnapshot implements RepositoryView {
+		
+		private static final int MAGIC = 0x4D444453;
+		
+		private static final int HEADER_SIZE = 4 * 17;
+		
+		private static final byte ARTIFACT = 0;
+		
+		private static final byte TRANSFORMATION = 1;
+		
+		private static final byte CO_EVOLUTION_MODEL = 2;
+		
+		// the type tags are kept in the lower bits of a type, the flags of a transformation in the upper ones
+		private static final int TYPE_MASK = 0x0F;
+		
+		private static final int DETERMINISTIC = 1 << 4;
+		
+		private static final int BLOCKING = 1 << 5;
+		
+		private final ByteBuffer buffer;
+		
+		private final TransformationRegistry registry;
+		
+		private final int names;
+		
+		private final int artifacts;
+		
+		private final int metamodelKeys;
+		
+		private final int inputKeys;
+		
+		private final int nameOffsets;
+		
+		private final int nameBytes;
+		
+		private final int keys;
+		
+		private final int types;
+		
+		private final int changedArtifacts;
+		
+		private final int metamodels;
+		
+		private final int inputs;
+		
+		private final int outputs;
+		
+		private final int instances;
+		
+		private final int accepting;
+		
+		private final int references;
+		
+		private final int generatedMetamodels;
+		
+		private DependencyGraph dependencyGraph;
+		
+		private RepositorySnapshot(ByteBuffer buffer, TransformationRegistry registry) {
+			this.buffer = buffer;
+			this.registry = registry;
+			if (buffer.getInt(0) != MAGIC) {
+				throw new IllegalArgumentException("Not a repository snapshot");
+			}
+			names = buffer.getInt(4);
+			artifacts = buffer.getInt(8);
+			metamodelKeys = buffer.getInt(12);
+			inputKeys = buffer.getInt(16);
+			nameOffsets = buffer.getInt(20);
+			nameBytes = buffer.getInt(24);
+			keys = buffer.getInt(28);
+			types = buffer.getInt(32);
+			changedArtifacts = buffer.getInt(36);
+			metamodels = buffer.getInt(40);
+			inputs = buffer.getInt(44);
+			outputs = buffer.getInt(48);
+			instances = buffer.getInt(52);
+			accepting = buffer.getInt(56);
+			references = buffer.getInt(60);
+			generatedMetamodels = buffer.getInt(64);
+		}
+		
+		public static RepositorySnapshot open(Path path, TransformationRegistry registry) throws IOException {
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				// the mapping stays valid after the channel has been closed
+				return new RepositorySnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), registry);
+			}
+		}
+		
+		// the generated meta models of each transformation are stored as well, see Repository#getGeneratedMetamodels
+		public static void write(Collection<Artifact> artifacts, Function<Transformation, Set<ArtifactVersion>> generatedMetamodels, Path path) throws IOException {
+			Function<Artifact, Set<ArtifactVersion>> generated = artifact -> artifact instanceof Transformation t
+				? generatedMetamodels.apply(t) : Collections.emptySet();
+			// names of all artifacts and of all versions they refer to, in UTF-8 byte order
+			Set<String> distinctNames = new HashSet<>();
+			for (Artifact artifact : artifacts) {
+				distinctNames.add(artifact.version().name());
+				artifact.getMetamodels().forEach(v -> distinctNames.add(v.name()));
+				artifact.getInputs().forEach(v -> distinctNames.add(v.name()));
+				artifact.getOutputs().forEach(v -> distinctNames.add(v.name()));
+				generated.apply(artifact).forEach(v -> distinctNames.add(v.name()));
+				if (artifact instanceof CoEvolutionModel coevm) {
+					distinctNames.add(coevm.getChangedArtifact().name());
+				}
+			}
+			byte[][] sortedNames = distinctNames.stream()
+				.map(name -> name.getBytes(StandardCharsets.UTF_8))
+				.sorted(Arrays::compareUnsigned)
+				.toArray(byte[][]::new);
+			Map<String, Integer> nameIds = new HashMap<>();
+			for (int i = 0; i < sortedNames.length; i++) {
+				nameIds.put(new String(sortedNames[i], StandardCharsets.UTF_8), i);
+			}
+			ToLongFunction<ArtifactVersion> key = v -> VersionDictionary.pack(nameIds.get(v.name()), v.version());
+			Artifact[] sorted = artifacts.toArray(Artifact[]::new);
+			Arrays.sort(sorted, Comparator.comparingLong(a -> key.applyAsLong(a.version())));
+			// reverse adjacency of meta models and of the inputs of transformations
+			TreeMap<Long, List<Long>> instancesByMetamodel = new TreeMap<>();
+			TreeMap<Long, List<Long>> transformationsByInput = new TreeMap<>();
+			long metamodelEdges = 0;
+			long inputEdges = 0;
+			long outputEdges = 0;
+			long generatedEdges = 0;
+			long acceptingEdges = 0;
+			int nameLength = 0;
+			for (byte[] name : sortedNames) {
+				nameLength += name.length;
+			}
+			for (Artifact artifact : sorted) {
+				long artifactKey = key.applyAsLong(artifact.version());
+				for (ArtifactVersion metamodel : artifact.getMetamodels()) {
+					instancesByMetamodel.computeIfAbsent(key.applyAsLong(metamodel), k -> new ArrayList<>()).add(artifactKey);
+				}
+				if (artifact instanceof Transformation) {
+					for (ArtifactVersion input : artifact.getInputs()) {
+						transformationsByInput.computeIfAbsent(key.applyAsLong(input), k -> new ArrayList<>()).add(artifactKey);
+					}
+					acceptingEdges += artifact.getInputs().size();
+				}
+				metamodelEdges += artifact.getMetamodels().size();
+				inputEdges += artifact.getInputs().size();
+				outputEdges += artifact.getOutputs().size();
+				generatedEdges += generated.apply(artifact).size();
+			}
+			int n = sorted.length;
+			byte[][] encodedReferences = new byte[n][];
+			int referenceLength = 0;
+			ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+			for (int i = 0; i < n; i++) {
+				encoded.reset();
+				if (sorted[i] instanceof Transformation t && t.getReference().isPresent()) {
+					t.getReference().get().write(new DataOutputStream(encoded));
+				}
+				encodedReferences[i] = encoded.toByteArray();
+				referenceLength += encodedReferences[i].length;
+			}
+			long[] positions = new long[12];
+			positions[0] = HEADER_SIZE;
+			positions[1] = positions[0] + 4L * (sortedNames.length + 1);
+			positions[2] = positions[1] + nameLength;
+			positions[3] = positions[2] + 8L * n;
+			positions[4] = positions[3] + n;
+			positions[5] = positions[4] + 8L * n;
+			positions[6] = positions[5] + 4L * (n + 1) + 8 * metamodelEdges;
+			positions[7] = positions[6] + 4L * (n + 1) + 8 * inputEdges;
+			positions[8] = positions[7] + 4L * (n + 1) + 8 * outputEdges;
+			positions[9] = positions[8] + 8L * instancesByMetamodel.size() + 4L * (instancesByMetamodel.size() + 1) + 8 * metamodelEdges;
+			positions[10] = positions[9] + 8L * transformationsByInput.size() + 4L * (transformationsByInput.size() + 1) + 8 * acceptingEdges;
+			positions[11] = positions[10] + 4L * (n + 1) + referenceLength;
+			long size = positions[11] + 4L * (n + 1) + 8 * generatedEdges;
+			if (size > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Snapshot exceeds the maximum size of a mapped file");
+			}
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+				out.writeInt(MAGIC);
+				out.writeInt(sortedNames.length);
+				out.writeInt(n);
+				out.writeInt(instancesByMetamodel.size());
+				out.writeInt(transformationsByInput.size());
+				for (long position : positions) {
+					out.writeInt((int) position);
+				}
+				int offset = 0;
+				out.writeInt(offset);
+				for (byte[] name : sortedNames) {
+					offset += name.length;
+					out.writeInt(offset);
+				}
+				for (byte[] name : sortedNames) {
+					out.write(name);
+				}
+				for (Artifact artifact : sorted) {
+					out.writeLong(key.applyAsLong(artifact.version()));
+				}
+				for (Artifact artifact : sorted) {
+					out.writeByte(type(artifact));
+				}
+				for (Artifact artifact : sorted) {
+					out.writeLong(artifact instanceof CoEvolutionModel coevm
+						? key.applyAsLong(coevm.getChangedArtifact()) : VersionDictionary.MISSING);
+				}
+				writeAdjacency(out, sorted, Artifact::getMetamodels, key);
+				writeAdjacency(out, sorted, Artifact::getInputs, key);
+				writeAdjacency(out, sorted, Artifact::getOutputs, key);
+				writeReverseAdjacency(out, instancesByMetamodel);
+				writeReverseAdjacency(out, transformationsByInput);
+				offset = 0;
+				out.writeInt(offset);
+				for (byte[] reference : encodedReferences) {
+					offset += reference.length;
+					out.writeInt(offset);
+				}
+				for (byte[] reference : encodedReferences) {
+					out.write(reference);
+				}
+				writeAdjacency(out, sorted, generated, key);
+			}
+		}
+		
+		private static int type(Artifact artifact) {
+			if (artifact instanceof CoEvolutionModel) {
+				return CO_EVOLUTION_MODEL;
+			} else if (artifact instanceof Transformation t) {
+				return TRANSFORMATION | (t.isDeterministic() ? DETERMINISTIC : 0) | (t.isBlocking() ? BLOCKING : 0);
+			}
+			return ARTIFACT;
+		}
+		
+		private static void writeAdjacency(DataOutputStream out, Artifact[] sorted, Function<Artifact, Set<ArtifactVersion>> targets, ToLongFunction<ArtifactVersion> key) throws IOException {
+			int offset = 0;
+			out.writeInt(offset);
+			for (Artifact artifact : sorted) {
+				offset += targets.apply(artifact).size();
+				out.writeInt(offset);
+			}
+			for (Artifact artifact : sorted) {
+				long[] targetKeys = targets.apply(artifact).stream().mapToLong(key).sorted().toArray();
+				for (long targetKey : targetKeys) {
+					out.writeLong(targetKey);
+				}
+			}
+		}
+		
+		private static void writeReverseAdjacency(DataOutputStream out, TreeMap<Long, List<Long>> adjacency) throws IOException {
+			for (long key : adjacency.keySet()) {
+				out.writeLong(key);
+			}
+			int offset = 0;
+			out.writeInt(offset);
+			for (List<Long> targets : adjacency.values()) {
+				offset += targets.size();
+				out.writeInt(offset);
+			}
+			for (List<Long> targets : adjacency.values()) {
+				for (long target : targets) {
+					out.writeLong(target);
+				}
+			}
+		}
+		
+		@Override
+		public Artifact get(ArtifactVersion version) {
+			int index = indexOf(version);
+			return index < 0 ? null : artifact(index);
+		}
+		
+		@Override
+		public Set<Artifact> getInstances(ArtifactVersion version) {
+			return reverseTargets(instances, metamodelKeys, version).stream()
+				.map(this::artifact)
+				.collect(Collectors.toSet());
+		}
+		
+		@Override
+		public Set<ArtifactVersion> getMetamodels(ArtifactVersion version) {
+			int index = indexOf(version);
+			return index < 0 ? Collections.emptySet() : targets(metamodels, artifacts, index);
+		}
+		
+		@Override
+		public Set<ArtifactVersion> getInputs(ArtifactVersion version) {
+			int index = indexOf(version);
+			return index < 0 ? Collections.emptySet() : targets(inputs, artifacts, index);
+		}
+		
+		@Override
 		public Set<Transformation> getAcceptingTransformations(ArtifactVersion version) {
-			return artifactsByVersion.values().stream().map(Artifact::asTransformation)
-				// find any transformation that has declared the argument as an input
-				.filter(Optional::isPresent)
-				.map(Optional::get)
-				.filter(t -> t.getInputs().contains(version))
+			return reverseTargets(accepting, inputKeys, version).stream()
+				.map(this::artifact)
+				.map(Transformation.class::cast)
 				.collect(Collectors.toSet());
 		}
 		
-		@Override
-		public void commit(Artifact a) {
-			ArtifactVersion version = a.version();
-			while (artifactsByVersion.containsKey(version)) {
-				version = version.increment();
-			}			
-			Artifact newVersion = copyArtifact(a).withVersion(version).build();
-			artifactsByVersion.put(newVersion.version(), newVersion);
-			log("[COMMIT] " + newVersion);
-			onChange(this, newVersion.version());
+		@Override
+		public Optional<ArtifactVersion> latest(String name) {
+			int nameId = nameId(name);
+			if (nameId < 0) {
+				return Optional.empty();
+			}
+			// the versions of a name are stored next to each other, find the last one
+			int index = search(keys, artifacts, VersionDictionary.pack(nameId, Integer.MAX_VALUE));
+			int last = index < 0 ? -index - 2 : index;
+			if (last < 0 || (int) (key(last) >>> 32) != nameId) {
+				return Optional.empty();
+			}
+			return Optional.of(version(key(last)));
+		}
+		
+		@Override
+		public synchronized int getLevel(ArtifactVersion version) {
+			if (dependencyGraph == null) {
+				// derived from the meta models, inputs and outputs of all artifacts on first use
+				dependencyGraph = new DependencyGraph();
+				for (int i = 0; i < artifacts; i++) {
+					dependencyGraph.add(dependencies(i), dependency -> {
+						int found = indexOf(dependency);
+						return found < 0 ? null : dependencies(found);
+					});
+				}
+			}
+			int index = indexOf(version);
+			return index < 0 ? dependencyGraph.getLevel(version) : dependencyGraph.getLevel(dependencies(index));
+		}
+		
+		@Override
+		public Impact impact(ArtifactVersion version) {
+			return Main.impact(this, version);
+		}
+		
+		@Override
+		public Set<ArtifactVersion> getGeneratedMetamodels(Transformation transformation) {
+			int index = indexOf(transformation.version());
+			return index < 0 ? transformation.getOutputs() : targets(generatedMetamodels, artifacts, index);
+		}
+		
+		public int size() {
+			return artifacts;
+		}
+		
+		// decoded on access
+		public List<Artifact> getArtifacts() {
+			return new AbstractList<>() {
+				
+				@Override
+				public Artifact get(int index) {
+					return artifact(index);
+				}
+				
+				@Override
+				public int size() {
+					return artifacts;
+				}
+				
+			};
+		}
+		
+		private Artifact artifact(int index) {
+			ArtifactVersion version = version(key(index));
+			int type = buffer.get(types + index);
+			AbstractArtifactBuilder<?, ?> builder;
+			if ((type & TYPE_MASK) == CO_EVOLUTION_MODEL) {
+				builder = buildCoEvolutionModel(version).withChangedArtifact(version(buffer.getLong(changedArtifacts + 8 * index)));
+			} else if ((type & TYPE_MASK) == TRANSFORMATION) {
+				TransformationReference reference = reference(index);
+				builder = buildTransformation(version).withTransformation(registry.resolve(version, reference))
+					.withReference(reference)
+					.withDeterministic((type & DETERMINISTIC) != 0)
+					.withBlocking((type & BLOCKING) != 0);
+			} else {
+				builder = buildArtifact(version);
+			}
+			return withTargets(builder, index).build();
+		}
+		
+		// an artifact with the dependencies of the one at the index, but without the function of a transformation
+		private Artifact dependencies(int index) {
+			ArtifactVersion version = version(key(index));
+			return withTargets((buffer.get(types + index) & TYPE_MASK) == TRANSFORMATION ? buildTransformation(version) : buildArtifact(version), index).build();
+		}
+		
+		private AbstractArtifactBuilder<?, ?> withTargets(AbstractArtifactBuilder<?, ?> builder, int index) {
+			targets(metamodels, artifacts, index).forEach(builder::withMetamodel);
+			targets(inputs, artifacts, index).forEach(builder::withInput);
+			targets(outputs, artifacts, index).forEach(builder::withOutput);
+			return builder;
+		}
+		
+		private long key(int index) {
+			return buffer.getLong(keys + 8 * index);
+		}
+		
+		private TransformationReference reference(int index) {
+			int from = buffer.getInt(references + 4 * index);
+			int to = buffer.getInt(references + 4 * (index + 1));
+			if (from == to) {
+				return null;
+			}
+			byte[] bytes = new byte[to - from];
+			buffer.get(references + 4 * (artifacts + 1) + from, bytes);
+			try {
+				return TransformationReference.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+			} catch (IOException e) {
+				throw new UncheckedIOException("Can't read the transformation reference of " + version(key(index)), e);
+			}
+		}
+		
+		private int indexOf(ArtifactVersion version) {
+			int nameId = nameId(version.name());
+			return nameId < 0 ? -1 : Math.max(-1, search(keys, artifacts, VersionDictionary.pack(nameId, version.version())));
+		}
+		
+		private int indexOf(long key) {
+			return search(keys, artifacts, key);
+		}
+		
+		private Set<ArtifactVersion> targets(int section, int count, int index) {
+			int from = buffer.getInt(section + 4 * index);
+			int to = buffer.getInt(section + 4 * (index + 1));
+			int base = section + 4 * (count + 1);
+			Set<ArtifactVersion> result = new HashSet<>();
+			for (int i = from; i < to; i++) {
+				result.add(version(buffer.getLong(base + 8 * i)));
+			}
+			return result;
+		}
+		
+		private List<Integer> reverseTargets(int section, int count, ArtifactVersion version) {
+			int nameId = nameId(version.name());
+			int index = nameId < 0 ? -1 : search(section, count, VersionDictionary.pack(nameId, version.version()));
+			if (index < 0) {
+				return Collections.emptyList();
+			}
+			int adjacency = section + 8 * count;
+			int from = buffer.getInt(adjacency + 4 * index);
+			int to = buffer.getInt(adjacency + 4 * (index + 1));
+			int base = adjacency + 4 * (count + 1);
+			List<Integer> result = new ArrayList<>(to - from);
+			for (int i = from; i < to; i++) {
+				result.add(indexOf(buffer.getLong(base + 8 * i)));
+			}
+			return result;
+		}
+		
+		private int search(int section, int count, long key) {
+			int low = 0;
+			int high = count - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				long value = buffer.getLong(section + 8 * mid);
+				if (value < key) {
+					low = mid + 1;
+				} else if (value > key) {
+					high = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+			return -(low + 1);
+		}
+		
+		private int nameId(String name) {
+			byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+			int low = 0;
+			int high = names - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int comparison = compareName(mid, bytes);
+				if (comparison < 0) {
+					low = mid + 1;
+				} else if (comparison > 0) {
+					high = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+			return -1;
+		}
+		
+		private int compareName(int id, byte[] bytes) {
+			int from = nameBytes + buffer.getInt(nameOffsets + 4 * id);
+			int length = buffer.getInt(nameOffsets + 4 * (id + 1)) - buffer.getInt(nameOffsets + 4 * id);
+			for (int i = 0; i < Math.min(length, bytes.length); i++) {
+				int comparison = Byte.compareUnsigned(buffer.get(from + i), bytes[i]);
+				if (comparison != 0) {
+					return comparison;
+				}
+			}
+			return Integer.compare(length, bytes.length);
+		}
+		
+		private ArtifactVersion version(long key) {
+			int id = (int) (key >>> 32);
+			int from = buffer.getInt(nameOffsets + 4 * id);
+			byte[] bytes = new byte[buffer.getInt(nameOffsets + 4 * (id + 1)) - from];
+			buffer.get(nameBytes + from, bytes);
+			return new ArtifactVersion(new String(bytes, StandardCharsets.UTF_8), (int) key);
+		}
+		
+	}
+	
+	public record CacheMetrics(long hits, long misses, long evictions, long bypassed, int size) {}
+	
+	// LRU cache of results by transformation and input version, non-deterministic results are never cached
+	public static class TransformationCache {
+		
+		private record Key(ArtifactVersion transformation, ArtifactVersion input) {}
+		
+		private final Map<Key, Optional<Artifact>> results;
+		
+		private long hits = 0;
+		
+		private long misses = 0;
+		
+		private long evictions = 0;
+		
+		private long bypassed = 0;
+		
+		public TransformationCache(int maxSize) {
+			this.results = new LinkedHashMap<>(16, 0.75f, true) {
+				
+				private static final long serialVersionUID = 1L;
+				
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Key, Optional<Artifact>> eldest) {
+					if (size() > maxSize) {
+						evictions++;
+						return true;
+					}
+					return false;
+				}
+				
+			};
+		}
+		
+		public Optional<Artifact> apply(Application application) {
+			if (!application.transformation().isDeterministic()) {
+				synchronized (this) {
+					bypassed++;
+				}
+				return application.apply();
+			}
+			Key key = new Key(application.transformation().version(), application.input().version());
+			synchronized (this) {
+				Optional<Artifact> result = results.get(key);
+				if (result != null) {
+					hits++;
+					return result;
+				}
+				misses++;
+			}
+			Optional<Artifact> result = application.apply();
+			synchronized (this) {
+				results.put(key, result);
+			}
+			return result;
+		}
+		
+		public synchronized CacheMetrics getMetrics() {
+			return new CacheMetrics(hits, misses, evictions, bypassed, results.size());
+		}
+		
+	}
+	
+	// polled level by level, an application that is already pending isn't added again
+	public static class LevelQueue extends AbstractQueue<Application> {
+		
+		private final ToIntFunction<Application> level;
+		
+		private final TreeMap<Integer, Set<Application>> levels = new TreeMap<>();
+		
+		private int size = 0;
+		
+		public LevelQueue(ToIntFunction<Application> level) {
+			this.level = level;
+		}
+		
+		// like a set, false for an application that is already pending
+		@Override
+		public boolean add(Application application) {
+			return offer(application);
+		}
+		
+		@Override
+		public boolean offer(Application application) {
+			if (levels.computeIfAbsent(level.applyAsInt(application), l -> new LinkedHashSet<>()).add(application)) {
+				size++;
+				return true;
+			}
+			return false;
+		}
+		
+		@Override
+		public Application poll() {
+			Map.Entry<Integer, Set<Application>> lowest = levels.firstEntry();
+			if (lowest == null) {
+				return null;
+			}
+			Iterator<Application> iterator = lowest.getValue().iterator();
+			Application next = iterator.next();
+			iterator.remove();
+			if (lowest.getValue().isEmpty()) {
+				levels.remove(lowest.getKey());
+			}
+			size--;
+			return next;
+		}
+		
+		public Set<Application> pollLevel() {
+			Map.Entry<Integer, Set<Application>> lowest = levels.pollFirstEntry();
+			if (lowest == null) {
+				return Collections.emptySet();
+			}
+			size -= lowest.getValue().size();
+			return lowest.getValue();
+		}
+		
+		@Override
+		public Application peek() {
+			return levels.isEmpty() ? null : levels.firstEntry().getValue().iterator().next();
+		}
+		
+		@Override
+		public Iterator<Application> iterator() {
+			return levels.values().stream().flatMap(Set::stream).iterator();
+		}
+		
+		@Override
+		public int size() {
+			return size;
+		}
+		
+		@Override
+		public void clear() {
+			levels.clear();
+			size = 0;
+		}
+		
+	}
+	
+	// buckets like in HdrHistogram keep every value within a relative error of 1/16
+	public static class LatencyHistogram {
+		
+		private static final int SUB_BUCKET_BITS = 4;
+		
+		private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+		
+		private final AtomicLongArray counts = new AtomicLongArray((Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+		
+		private final LongAdder count = new LongAdder();
+		
+		private final LongAdder sum = new LongAdder();
+		
+		private final AtomicLong max = new AtomicLong();
+		
+		public void record(long value) {
+			counts.incrementAndGet(index(Math.max(0, value)));
+			count.increment();
+			sum.add(value);
+			max.accumulateAndGet(value, Math::max);
+		}
+		
+		public long getCount() {
+			return count.sum();
+		}
+		
+		public long getMean() {
+			long n = count.sum();
+			return n == 0 ? 0 : sum.sum() / n;
+		}
+		
+		public long getMax() {
+			return max.get();
+		}
+		
+		public long getValueAtPercentile(double percentile) {
+			long n = count.sum();
+			long target = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+			long seen = 0;
+			for (int i = 0; i < counts.length(); i++) {
+				seen += counts.get(i);
+				if (seen >= target) {
+					return Math.min(highestEquivalentValue(i), max.get());
+				}
+			}
+			return max.get();
+		}
+		
+		private static int index(long value) {
+			if (value < SUB_BUCKETS) {
+				return (int) value;
+			}
+			// the sub bucket is given by the highest bits of the value
+			int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+			return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+		}
+		
+		private static long highestEquivalentValue(int index) {
+			int bucket = index / SUB_BUCKETS;
+			long subBucket = index % SUB_BUCKETS;
+			if (bucket == 0) {
+				return subBucket;
+			}
+			return ((SUB_BUCKETS + subBucket + 1) << (bucket - 1)) - 1;
+		}
+		
+	}
+	
+	public record TransformationStatistics(String transformation, long applications, long outputs, long fanOut,
+		long meanNanos, long p50Nanos, long p99Nanos, long maxNanos) {
+		
+		public double outputRatio() {
+			return applications == 0 ? 0 : (double) outputs / applications;
+		}
+		
+		public double averageFanOut() {
+			return outputs == 0 ? 0 : (double) fanOut / outputs;
+		}
+		
+	}
+	
+	// the metrics of all versions of a transformation are combined by name
+	public static class TransformationMetrics {
+		
+		private static class Entry {
+			
+			private final LongAdder outputs = new LongAdder();
+			
+			private final LongAdder fanOut = new LongAdder();
+			
+			private final LatencyHistogram latencies = new LatencyHistogram();
+			
+		}
+		
+		private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+		
+		public void recordApplication(Transformation transformation, long nanos, boolean output) {
+			Entry entry = entry(transformation);
+			entry.latencies.record(nanos);
+			if (output) {
+				entry.outputs.increment();
+			}
+		}
+		
+		public void recordFanOut(Transformation transformation, int applications) {
+			entry(transformation).fanOut.add(applications);
+		}
+		
+		private Entry entry(Transformation transformation) {
+			return entries.computeIfAbsent(transformation.version().name(), name -> new Entry());
+		}
+		
+		public Map<String, TransformationStatistics> getSnapshot() {
+			Map<String, TransformationStatistics> snapshot = new TreeMap<>();
+			entries.forEach((name, entry) -> snapshot.put(name, new TransformationStatistics(name,
+				entry.latencies.getCount(), entry.outputs.sum(), entry.fanOut.sum(), entry.latencies.getMean(),
+				entry.latencies.getValueAtPercentile(50), entry.latencies.getValueAtPercentile(99), entry.latencies.getMax())));
+			return Collections.unmodifiableMap(snapshot);
+		}
+		
+		// slowest first, latencies in microseconds
+		public String toTable() {
+			StringBuilder table = new StringBuilder(String.format("%-50s %12s %8s %8s %10s %10s %10s %10s",
+				"transformation", "applications", "outputs", "fan out", "mean us", "p50 us", "p99 us", "max us"));
+			getSnapshot().values().stream()
+				.sorted(Comparator.comparingLong(TransformationStatistics::p99Nanos).reversed())
+				.forEach(s -> table.append(String.format("%n%-50s %12s %7.0f%% %8.2f %10.1f %10.1f %10.1f %10.1f",
+					s.transformation(), s.applications(), 100 * s.outputRatio(), s.averageFanOut(), s.meanNanos() / 1_000.0,
+					s.p50Nanos() / 1_000.0, s.p99Nanos() / 1_000.0, s.maxNanos() / 1_000.0)));
+			return table.toString();
+		}
+		
+	}
+	
+	// carries the offending chain of applications
+	public static class PropagationException extends IllegalStateException {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private static final int REPORTED_APPLICATIONS = 10;
+		
+		private final transient List<Application> chain;
+		
+		public PropagationException(String message, List<Application> chain) {
+			super(String.format("%s: %s", message, format(chain)));
+			this.chain = List.copyOf(chain);
+		}
+		
+		public List<Application> getChain() {
+			return chain;
+		}
+		
+		private static String format(List<Application> chain) {
+			String applications = chain.stream()
+				.skip(Math.max(0, chain.size() - REPORTED_APPLICATIONS))
+				.map(a -> String.format("%s(%s)", a.transformation().version(), a.input().version()))
+				.collect(Collectors.joining(" -> "));
+			return chain.size() > REPORTED_APPLICATIONS
+				? String.format("%s more -> %s", chain.size() - REPORTED_APPLICATIONS, applications) : applications;
+		}
+		
+	}
+	
+	// keeps track of the tasks, so callers can wait until they and their cascades are done
+	public static class BlockingExecutor implements Closeable {
+		
+		private final ExecutorService executor;
+		
+		private final boolean virtual;
+		
+		private final ReentrantLock lock = new ReentrantLock();
+		
+		private final Condition quiescent = lock.newCondition();
+		
+		// guarded by the lock
+		private long pending = 0;
+		
+		private Throwable failure;
+		
+		public BlockingExecutor(ExecutorService executor) {
+			this(executor, false);
+		}
+		
+		private BlockingExecutor(ExecutorService executor, boolean virtual) {
+			this.executor = executor;
+			this.virtual = virtual;
+		}
+		
+		// falls back to a cached pool of daemon threads without virtual threads
+		public static BlockingExecutor virtualThreads() {
+			try {
+				// looked up reflectively since virtual threads are only available from Java 21 on
+				return new BlockingExecutor((ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null), true);
+			} catch (ReflectiveOperationException e) {
+				return cachedThreads();
+			}
+		}
+		
+		public static BlockingExecutor cachedThreads() {
+			return new BlockingExecutor(Executors.newCachedThreadPool(task -> {
+				Thread thread = new Thread(task, "blocking-transformation");
+				thread.setDaemon(true);
+				return thread;
+			}));
+		}
+		
+		public void execute(Runnable task) {
+			lock.lock();
+			try {
+				pending++;
+			} finally {
+				lock.unlock();
+			}
+			try {
+				executor.execute(() -> {
+					Throwable error = null;
+					try {
+						task.run();
+					} catch (Throwable e) {
+						error = e;
+					} finally {
+						done(error);
+					}
+				});
+			} catch (RuntimeException e) {
+				// rejected, e.g. after the executor has been closed
+				done(null);
+				throw e;
+			}
+		}
+		
+		private void done(Throwable error) {
+			lock.lock();
+			try {
+				// tasks dispatched by this one have been counted already
+				if (failure == null) {
+					failure = error;
+				}
+				if (--pending == 0) {
+					quiescent.signalAll();
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		// rethrows the first failure since the previous call
+		public void awaitQuiescence() {
+			lock.lock();
+			try {
+				while (pending > 0) {
+					quiescent.await();
+				}
+				if (failure != null) {
+					Throwable error = failure;
+					failure = null;
+					if (error instanceof RuntimeException e) {
+						throw e;
+					}
+					if (error instanceof Error e) {
+						throw e;
+					}
+					throw new IllegalStateException("Blocking transformation failed", error);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for blocking transformations", e);
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		public boolean isVirtual() {
+			return virtual;
 		}
 		
 		@Override
-		public void commit(Artifact... a) {
-			Arrays.asList(a).forEach(this::commit);
+		public void close() {
+			executor.shutdown();
+		}
+		
+	}
+	
+	// propagates through an explicit work queue, the outermost commit drains it
+	public static class PropagationEngine {
+		
+		private final Queue<Application> queue;
+		
+		// the queue once more if it is a level queue, whose waves are single levels
+		private final LevelQueue levels;
+		
+		private final ExecutorService executor;
+		
+		// the repository of the current propagation, which determines the levels of applications
+		private Repository repository;
+		
+		private boolean propagating = false;
+		
+		private long enqueued = 0;
+		
+		private long processed = 0;
+		
+		private int maxQueueDepth = 0;
+		
+		private TransformationCache cache;
+		
+		private int maxDepth = Integer.MAX_VALUE;
+		
+		private int maxFanOut = Integer.MAX_VALUE;
+		
+		private TransformationMetrics metrics;
+		
+		private BlockingExecutor blockingExecutor;
+		
+		private record Provenance(Application cause, int depth) {}
+		
+		private record Step(ArtifactVersion transformation, String input) {
+			
+			static Step of(Application application) {
+				return new Step(application.transformation().version(), application.input().version().name());
+			}
+			
+		}
+		
+		// cause and depth of every application of the current propagation
+		private final Map<Application, Provenance> provenance = new HashMap<>();
+		
+		// transformations and input names that have produced an output in the current propagation
+		private final Set<Step> produced = new HashSet<>();
+		
+		// the application whose output is being committed, null while committing the propagated versions
+		private Application current;
+		
+		public PropagationEngine(Queue<Application> queue) {
+			this(queue, null);
+		}
+		
+		public PropagationEngine(Queue<Application> queue, ExecutorService executor) {
+			this.queue = queue;
+			this.levels = null;
+			this.executor = executor;
+		}
+		
+		private PropagationEngine(ExecutorService executor) {
+			this.levels = new LevelQueue(application -> repository.getLevel(application.transformation().version()));
+			this.queue = levels;
+			this.executor = executor;
+		}
+		
+		public static PropagationEngine breadthFirst() {
+			return new PropagationEngine(new ArrayDeque<>());
+		}
+		
+		public static PropagationEngine depthFirst() {
+			return new PropagationEngine(Collections.asLifoQueue(new ArrayDeque<>()));
+		}
+		
+		public static PropagationEngine prioritized(Comparator<Application> comparator) {
+			return new PropagationEngine(new PriorityQueue<>(comparator));
+		}
+		
+		public static PropagationEngine parallel(ExecutorService executor) {
+			return new PropagationEngine(new ArrayDeque<>(), executor);
+		}
+		
+		// an artifact is only transformed once everything it may depend on has been applied
+		public static PropagationEngine topological() {
+			return new PropagationEngine((ExecutorService) null);
+		}
+		
+		// all applications of a level are applied in parallel
+		public static PropagationEngine topological(ExecutorService executor) {
+			return new PropagationEngine(executor);
+		}
+		
+		public PropagationEngine withCache(TransformationCache cache) {
+			this.cache = cache;
+			return this;
+		}
+		
+		public PropagationEngine withMetrics(TransformationMetrics metrics) {
+			this.metrics = metrics;
+			return this;
+		}
+		
+		// limits chains of applications, each transforming the output of the previous one
+		public PropagationEngine withMaxDepth(int maxDepth) {
+			this.maxDepth = maxDepth;
+			return this;
+		}
+		
+		// limits the applications caused by a single committed artifact
+		public PropagationEngine withMaxFanOut(int maxFanOut) {
+			this.maxFanOut = maxFanOut;
+			return this;
+		}
+		
+		// outputs are committed asynchronously, outside of the depth budget and the cycle detection
+		public PropagationEngine withBlockingExecutor(BlockingExecutor blockingExecutor) {
+			this.blockingExecutor = blockingExecutor;
+			return this;
+		}
+		
+		public void awaitQuiescence() {
+			if (blockingExecutor != null) {
+				blockingExecutor.awaitQuiescence();
+			}
+		}
+		
+		public void propagate(Repository repo, ArtifactVersion version) {
+			propagate(repo, List.of(version), Collections.emptySet());
+		}
+		
+		// fails on a cycle or when exceeding the depth or fan out budget
+		public void propagate(Repository repo, Collection<ArtifactVersion> versions, Set<ArtifactVersion> superseded) {
+			repository = repo;
+			int depth = current == null ? 0 : provenance.get(current).depth() + 1;
+			if (depth > maxDepth) {
+				throw new PropagationException(String.format("Depth budget of %s exceeded", maxDepth), chain(current));
+			}
+			Set<Application> applications = new LinkedHashSet<>();
+			for (ArtifactVersion version : versions) {
+				// the budget applies to each committed version, not to a whole batch
+				int fanOut = 0;
+				for (Application application : onChange(repo, version)) {
+					if (!superseded.contains(application.transformation().version())
+						&& !superseded.contains(application.input().version())) {
+						applications.add(application);
+						fanOut++;
+					}
+				}
+				if (fanOut > maxFanOut) {
+					throw new PropagationException(String.format("Fan out budget of %s exceeded by %s applications of %s", maxFanOut, fanOut, version),
+						current == null ? Collections.emptyList() : chain(current));
+				}
+			}
+			if (metrics != null && current != null) {
+				metrics.recordFanOut(current.transformation(), applications.size());
+			}
+			enqueue(repo, applications, depth);
+			maxQueueDepth = Math.max(maxQueueDepth, queue.size());
+			if (propagating) {
+				return;
+			}
+			propagating = true;
+			try {
+				while (!queue.isEmpty()) {
+					if (executor == null) {
+						Application next = queue.poll();
+						if (isCollected(repo, next)) {
+							continue;
+						}
+						processed++;
+						if (dispatch(repo, next)) {
+							continue;
+						}
+						Optional<Artifact> output = apply(next);
+						if (output.isPresent()) {
+							commit(repo, next, output.get());
+						}
+					} else {
+						applyWave(repo);
+					}
+				}
+			} finally {
+				// don't leave pending applications of a failed propagation behind
+				queue.clear();
+				provenance.clear();
+				produced.clear();
+				current = null;
+				propagating = false;
+			}
+		}
+		
+		// a superseded transformation must not fire anymore
+		private static boolean isCollected(Repository repo, Application application) {
+			return repo.get(application.transformation().version()) == null || repo.get(application.input().version()) == null;
+		}
+		
+		// returns whether the application has been dispatched
+		private boolean dispatch(Repository repo, Application application) {
+			if (blockingExecutor == null || !application.transformation().isBlocking()) {
+				return false;
+			}
+			blockingExecutor.execute(() -> apply(application).ifPresent(output -> repo.commit(application, output)));
+			return true;
+		}
+		
+		private void commit(Repository repo, Application application, Artifact output) {
+			// only a repeated step can close a cycle, if an ancestor in the chain has taken it as well
+			Step step = Step.of(application);
+			for (Application cause = produced.add(step) ? null : provenance.get(application).cause(); cause != null; cause = provenance.get(cause).cause()) {
+				if (step.equals(Step.of(cause))) {
+					List<Application> chain = chain(application);
+					throw new PropagationException("Cycle detected", chain.subList(chain.indexOf(cause), chain.size()));
+				}
+			}
+			current = application;
+			try {
+				repo.commit(application, output);
+			} finally {
+				current = null;
+			}
+		}
+		
+		// starts with the application of a committed artifact
+		private List<Application> chain(Application application) {
+			List<Application> chain = new ArrayList<>();
+			for (Application next = application; next != null; next = provenance.get(next).cause()) {
+				chain.add(next);
+			}
+			Collections.reverse(chain);
+			return chain;
+		}
+		
+		private void enqueue(Repository repo, Collection<Application> applications, int depth) {
+			for (Application application : applications) {
+				provenance.putIfAbsent(application, new Provenance(current, depth));
+				if (queue.offer(application)) {
+					enqueued++;
+				}
+			}
+		}
+		
+		private void applyWave(Repository repo) {
+			// a wave is a single level of a level queue, otherwise everything that is pending
+			Collection<Application> wave;
+			if (levels != null) {
+				wave = levels.pollLevel();
+			} else {
+				wave = new ArrayList<>(queue.size());
+				while (!queue.isEmpty()) {
+					wave.add(queue.poll());
+				}
+			}
+			wave.removeIf(next -> isCollected(repo, next));
+			List<Application> applied = new ArrayList<>(wave.size());
+			List<Future<Optional<Artifact>>> results = new ArrayList<>(wave.size());
+			for (Application next : wave) {
+				processed++;
+				if (!dispatch(repo, next)) {
+					applied.add(next);
+					results.add(executor.submit(() -> apply(next)));
+				}
+			}
+			Iterator<Application> applications = applied.iterator();
+			for (Future<Optional<Artifact>> result : results) {
+				Application next = applications.next();
+				try {
+					Optional<Artifact> output = result.get();
+					if (output.isPresent()) {
+						commit(repo, next, output.get());
+					}
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof RuntimeException cause) {
+						throw cause;
+					}
+					throw new IllegalStateException("Transformation failed", e.getCause());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Interrupted while waiting for transformation", e);
+				}
+			}
+		}
+		
+		private Optional<Artifact> apply(Application application) {
+			emit(EventType.TRANSFORM_START, application.transformation().version(), application.input().version());
+			long start = metrics == null ? 0 : System.nanoTime();
+			Optional<Artifact> output = cache == null ? application.apply() : cache.apply(application);
+			if (metrics != null) {
+				metrics.recordApplication(application.transformation(), System.nanoTime() - start, output.isPresent());
+			}
+			emit(EventType.TRANSFORM_END, application.transformation().version(), application.input().version());
+			return output;
+		}
+		
+		public PropagationMetrics getMetrics() {
+			return new PropagationMetrics(enqueued, processed, queue.size(), maxQueueDepth);
 		}
 		
 	}
@@ -505,11 +4364,12 @@ public class Main {
 		
 		protected ArtifactVersion version;
 		
-		protected final Set<ArtifactVersion> metamodels = new HashSet<>();
+		// immutable and shared with the artifact that is copied until an element changes
+		protected VersionSet metamodels = VersionSet.EMPTY;
 		
-		protected final Set<ArtifactVersion> inputs = new HashSet<>();
+		protected VersionSet inputs = VersionSet.EMPTY;
 		
-		protected final Set<ArtifactVersion> outputs = new HashSet<>();
+		protected VersionSet outputs = VersionSet.EMPTY;
 		
 		protected abstract U getThis();
 		
@@ -519,34 +4379,36 @@ public class Main {
 		}
 		
 		public U withMetamodel(ArtifactVersion metamodel) {
-			this.metamodels.add(metamodel);
+			this.metamodels = metamodels.with(metamodel);
 			return getThis();
 		}
 		
 		public U updateMetamodel(ArtifactVersion version) {
-			if (this.metamodels.remove(version.decrement())) {
-				this.metamodels.add(version);
-			}
+			this.metamodels = metamodels.replace(version.decrement(), version);
 			return getThis();
 		}
 		
 		public U withInput(ArtifactVersion input) {
-			this.inputs.add(input);
+			this.inputs = inputs.with(input);
 			return getThis();
 		}
 		
 		public U withOutput(ArtifactVersion output) {
-			this.outputs.add(output);
+			this.outputs = outputs.with(output);
 			return getThis();
 		}
 		
 		public U updateDependency(ArtifactVersion version) {
-			if (this.inputs.remove(version.decrement())) {
-				this.inputs.add(version);
-			}
-			if (this.outputs.remove(version.decrement())) {
-				this.outputs.add(version);
-			}
+			this.inputs = inputs.replace(version.decrement(), version);
+			this.outputs = outputs.replace(version.decrement(), version);
+			return getThis();
+		}
+		
+		// shares the sets of the artifact
+		protected U withDependencies(Artifact artifact) {
+			this.metamodels = VersionSet.copyOf(artifact.getMetamodels());
+			this.inputs = VersionSet.copyOf(artifact.getInputs());
+			this.outputs = VersionSet.copyOf(artifact.getOutputs());
 			return getThis();
 		}
 		
@@ -596,6 +4458,12 @@ public class Main {
 		
 		private Function<Artifact, Optional<Artifact>> transformation;
 		
+		private boolean deterministic = true;
+		
+		private TransformationReference reference;
+		
+		private boolean blocking = false;
+		
 		public TransformationBuilder(String name) {
 			this.version = new ArtifactVersion(name, 0);
 		}
@@ -606,6 +4474,28 @@ public class Main {
 		
 		public TransformationBuilder withTransformation(Function<Artifact, Optional<Artifact>> transformation) {
 			this.transformation = transformation;
+			this.reference = null;
+			return this;
+		}
+		
+		public TransformationBuilder withTransformation(RegisteredTransformation transformation) {
+			this.transformation = transformation.function();
+			this.reference = transformation.reference();
+			return this;
+		}
+		
+		public TransformationBuilder withReference(TransformationReference reference) {
+			this.reference = reference;
+			return this;
+		}
+		
+		public TransformationBuilder withDeterministic(boolean deterministic) {
+			this.deterministic = deterministic;
+			return this;
+		}
+		
+		public TransformationBuilder withBlocking(boolean blocking) {
+			this.blocking = blocking;
 			return this;
 		}
 		
@@ -616,7 +4506,124 @@ public class Main {
 
 		@Override
 		public Transformation build() {
-			return new TransformationImpl(version, metamodels, inputs, outputs, transformation);
+			return new TransformationImpl(version, metamodels, inputs, outputs, transformation, deterministic, reference, blocking);
+		}
+		
+	}
+	
+	public static EcosystemGenerator generateEcosystem() {
+		return new EcosystemGenerator();
+	}
+	
+	// the same seed always yields the same ecosystem
+	public static class EcosystemGenerator {
+		
+		private long seed = 0;
+		
+		private int metamodels = 10;
+		
+		private int instances = 100;
+		
+		private int generators = 2;
+		
+		private int depth = 3;
+		
+		private int fanOut = 1;
+		
+		private boolean coEvolution = false;
+		
+		public EcosystemGenerator withSeed(long seed) {
+			this.seed = seed;
+			return this;
+		}
+		
+		public EcosystemGenerator withMetamodels(int metamodels) {
+			this.metamodels = metamodels;
+			return this;
+		}
+		
+		public EcosystemGenerator withInstances(int instances) {
+			this.instances = instances;
+			return this;
+		}
+		
+		public EcosystemGenerator withGenerators(int generators) {
+			this.generators = generators;
+			return this;
+		}
+		
+		public EcosystemGenerator withDepth(int depth) {
+			this.depth = depth;
+			return this;
+		}
+		
+		public EcosystemGenerator withFanOut(int fanOut) {
+			this.fanOut = fanOut;
+			return this;
+		}
+		
+		public EcosystemGenerator withCoEvolution(boolean coEvolution) {
+			this.coEvolution = coEvolution;
+			return this;
+		}
+		
+		public ArtifactVersion metamodel(int index) {
+			return new ArtifactVersion("metamodel" + index, 0);
+		}
+		
+		// meta models and generators first, then all instances in random order
+		public List<Artifact> generate() {
+			Random random = new Random(seed);
+			List<Artifact> ecosystem = new ArrayList<>();
+			ecosystem.add(ecore);
+			if (coEvolution) {
+				ecosystem.addAll(List.of(trafoMM, coEvM, coEvModelGen, modelCoEvGen, trafoCoEvGen));
+			}
+			List<Artifact> models = new ArrayList<>();
+			for (int m = 0; m < metamodels; m++) {
+				ecosystem.add(buildArtifact(metamodel(m)).withMetamodel(ecore.version()).build());
+				List<ArtifactVersion> level = List.of(metamodel(m));
+				for (int l = 1; l <= depth; l++) {
+					List<ArtifactVersion> nextLevel = new ArrayList<>();
+					for (int f = 0; f < fanOut; f++) {
+						Artifact target = buildArtifact(String.format("metamodel%s-%s-%s", m, l, f)).build();
+						ecosystem.add(target);
+						nextLevel.add(target.version());
+					}
+					for (ArtifactVersion input : level) {
+						int count = 1 + random.nextInt(Math.max(1, generators));
+						for (int g = 0; g < count; g++) {
+							ArtifactVersion output = nextLevel.get(random.nextInt(nextLevel.size()));
+							ecosystem.add(generator(input.name() + "To" + g, input, output));
+						}
+					}
+					level = nextLevel;
+				}
+				int count = instances / 2 + random.nextInt(Math.max(1, instances + 1));
+				for (int i = 0; i < count; i++) {
+					models.add(buildArtifact(String.format("model%s-%s", m, i)).withMetamodel(metamodel(m)).build());
+				}
+			}
+			Collections.shuffle(models, random);
+			ecosystem.addAll(models);
+			return ecosystem;
+		}
+		
+		private Artifact generator(String name, ArtifactVersion input, ArtifactVersion output) {
+			TransformationBuilder builder = buildTransformation(name)
+				.withInput(input)
+				.withOutput(output)
+				.withTransformation(registry.create("generator", output.name(), String.valueOf(output.version()), name));
+			if (coEvolution) {
+				builder.withMetamodel(trafoMM.version());
+			}
+			return builder.build();
+		}
+		
+		@Override
+		public String toString() {
+			return String.format("seed=%s; metamodels=%s; instances=%s; generators=%s; depth=%s; fanOut=%s; coEvolution=%s",
+				seed, metamodels, instances, generators, depth, fanOut, coEvolution);
 		}
 		
 	}
@@ -663,14 +4670,14 @@ public class Main {
 		if (artifact instanceof CoEvolutionModel coevm) {
 			builder = buildCoEvolutionModel(coevm.version()).withChangedArtifact(coevm.getChangedArtifact());
 		} else if (artifact instanceof Transformation t) {
-			builder = buildTransformation(t.version()).withTransformation(t.getTransformation());
+			builder = buildTransformation(t.version()).withTransformation(t.getTransformation())
+				.withDeterministic(t.isDeterministic())
+				.withBlocking(t.isBlocking())
+				.withReference(t.getReference().orElse(null));
 		} else {
 			builder = buildArtifact(artifact.version());
 		}
-		artifact.getMetamodels().forEach(builder::withMetamodel);
-		artifact.getInputs().forEach(builder::withInput);
-		artifact.getOutputs().forEach(builder::withOutput);
-		return builder;
+		return builder.withDependencies(artifact);
 	}
 	
 }